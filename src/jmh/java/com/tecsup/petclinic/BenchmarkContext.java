@@ -0,0 +1,36 @@
+package com.tecsup.petclinic;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application for the benchmarks : embedded H2 (application-h2.yml)
+ * migrated by Flyway with the sample data, random port, and quiet logs so the
+ * measurements are not dominated by log I/O.
+ *
+ * @author jgomezm
+ *
+ */
+public final class BenchmarkContext {
+
+	private BenchmarkContext() {
+	}
+
+	/**
+	 * Start a new application context, close it in the benchmark tear down
+	 *
+	 * @return
+	 */
+	public static ConfigurableApplicationContext start() {
+		// Passed as arguments so they override application.yml
+		return new SpringApplicationBuilder(PetClinicApplication.class)
+				.run("--spring.profiles.active=h2",
+						"--server.port=0",
+						"--spring.jpa.show-sql=false",
+						"--spring.h2.console.enabled=false",
+						"--logging.level.root=WARN",
+						"--petclinic.request-log.sample-rate=0",
+						"--spring.devtools.restart.enabled=false");
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.tecsup.petclinic.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test : <code>clients</code> concurrent clients each send
+ * a GET, wait for the answer and send the next one, for <code>seconds</code>
+ * after a warmup. Prints throughput, latency percentiles and the status codes.
+ *
+ * Start the application first, once per execution mode :
+ *
+ * 	java -jar target/petclinic-0.0.1-SNAPSHOT.jar --spring.profiles.active=h2
+ * 	java -jar target/petclinic-0.0.1-SNAPSHOT.jar --spring.profiles.active=h2,virtual-threads
+ *
+ * then run : mvn -Pjmh test-compile exec:exec@load -Dload.clients=1000
+ *
+ * @author jgomezm
+ *
+ */
+public class PetLoadTest {
+
+	// Latency histogram in buckets of 100 µs, up to 30 s
+	private static final long BUCKET_NANOS = 100_000;
+
+	private static final int BUCKETS = 300_000;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(30))
+			.build();
+
+	private final HttpRequest request;
+
+	private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder completed = new LongAdder();
+
+	private final Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+
+	private volatile boolean recording;
+
+	private volatile boolean running = true;
+
+	PetLoadTest(String url) {
+		this.request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET().build();
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+
+		String url = System.getProperty("load.url", "http://localhost:8080/pets/1");
+		int clients = Integer.getInteger("load.clients", 1000);
+		int warmup = Integer.getInteger("load.warmup", 10);
+		int seconds = Integer.getInteger("load.seconds", 30);
+
+		PetLoadTest test = new PetLoadTest(url);
+
+		System.out.printf("GET %s, %d clients, %d s warmup, %d s measured%n", url, clients, warmup, seconds);
+
+		for (int i = 0; i < clients; i++)
+			test.next();
+
+		Thread.sleep(warmup * 1000L);
+		test.recording = true;
+		long start = System.nanoTime();
+		Thread.sleep(seconds * 1000L);
+		test.recording = false;
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		test.running = false;
+
+		test.report(elapsed);
+	}
+
+	private void next() {
+
+		if (!running)
+			return;
+
+		long start = System.nanoTime();
+
+		client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+				.whenComplete((response, error) -> {
+					if (recording) {
+						record(System.nanoTime() - start);
+						String status = error == null ? String.valueOf(response.statusCode())
+								: error.getClass().getSimpleName();
+						statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+					}
+					next();
+				});
+	}
+
+	private void record(long nanos) {
+		latencies.incrementAndGet((int) Math.min(nanos / BUCKET_NANOS, BUCKETS - 1));
+		completed.increment();
+	}
+
+	private void report(double elapsed) {
+
+		long total = completed.sum();
+
+		System.out.printf("requests   %d%n", total);
+		System.out.printf("throughput %.1f req/s%n", total / elapsed);
+		for (double percentile : new double[] { 50, 90, 99, 99.9 })
+			System.out.printf("p%-9s %.1f ms%n", percentile, percentile(total, percentile));
+
+		Map<String, Long> byStatus = new TreeMap<>();
+		statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+		System.out.printf("status     %s%n", byStatus);
+	}
+
+	private double percentile(long total, double percentile) {
+
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += latencies.get(i);
+			if (seen >= rank && seen > 0)
+				return (i + 1) * BUCKET_NANOS / 1e6;
+		}
+		return 0;
+	}
+
+}
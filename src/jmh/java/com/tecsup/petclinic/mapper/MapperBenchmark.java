@@ -0,0 +1,109 @@
+package com.tecsup.petclinic.mapper;
+
+import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.SpecialtyDTO;
+import com.tecsup.petclinic.dtos.VetDTO;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Specialty;
+import com.tecsup.petclinic.entities.Vet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of mapToDtoList of the Owner, Vet and Specialty mappers
+ * for 10k entities. PetMapper is measured in PetMapperBenchmark.
+ *
+ * @author jgomezm
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+	private static final int ENTITIES = 10_000;
+
+	// Specialties per vet, the names are mapped and sorted
+	private static final int VET_SPECIALTIES = 3;
+
+	private final OwnerMapper ownerMapper = OwnerMapper.INSTANCE;
+
+	private final VetMapper vetMapper = VetMapper.INSTANCE;
+
+	private final SpecialtyMapper specialtyMapper = SpecialtyMapper.INSTANCE;
+
+	private List<Owner> owners;
+
+	private List<Vet> vets;
+
+	private List<Specialty> specialties;
+
+	@Setup
+	public void setUp() {
+		owners = new ArrayList<>(ENTITIES);
+		vets = new ArrayList<>(ENTITIES);
+		specialties = new ArrayList<>(ENTITIES);
+
+		for (int i = 0; i < ENTITIES; i++) {
+			Owner owner = new Owner();
+			owner.setId((long) i + 1);
+			owner.setFirstName("First" + i);
+			owner.setLastName("Last" + i);
+			owner.setAddress(i + " Main St.");
+			owner.setCity("Lima");
+			owner.setTelephone("98765" + i);
+			owners.add(owner);
+
+			Specialty specialty = new Specialty();
+			specialty.setId(i + 1);
+			specialty.setName("Specialty" + i);
+			specialties.add(specialty);
+		}
+
+		for (int i = 0; i < ENTITIES; i++) {
+			Set<Specialty> vetSpecialties = new HashSet<>();
+			for (int j = 0; j < VET_SPECIALTIES; j++)
+				vetSpecialties.add(specialties.get((i + j) % ENTITIES));
+
+			Vet vet = new Vet();
+			vet.setId(i + 1);
+			vet.setFirstName("First" + i);
+			vet.setLastName("Last" + i);
+			vet.setSpecialties(vetSpecialties);
+			vets.add(vet);
+		}
+	}
+
+	@Benchmark
+	public List<OwnerDTO> ownerMapToDtoList() {
+		return ownerMapper.mapToDtoList(owners);
+	}
+
+	@Benchmark
+	public List<VetDTO> vetMapToDtoList() {
+		return vetMapper.mapToDtoList(vets);
+	}
+
+	@Benchmark
+	public List<SpecialtyDTO> specialtyMapToDtoList() {
+		return specialtyMapper.mapToDtoList(specialties);
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.tecsup.petclinic.mapper;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Pet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of PetMapper.mapToDtoList for 10k pets.
+ *
+ * <code>legacyMapToDtoList</code> is the previous conversion, one new
+ * SimpleDateFormat per pet on java.util.Date, kept as the baseline.
+ * The System.out trace it also had is left out so it does not flood
+ * the benchmark output.
+ *
+ * Run with : mvn -Pjmh test-compile exec:exec -Djmh.args=PetMapper
+ *
+ * @author jgomezm
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetMapperBenchmark {
+
+	private static final int PETS = 10_000;
+
+	private final PetMapper mapper = PetMapper.INSTANCE;
+
+	private List<Pet> pets;
+
+	private List<Date> legacyBirthDates;
+
+	@Setup
+	public void setUp() {
+		pets = new ArrayList<>(PETS);
+		legacyBirthDates = new ArrayList<>(PETS);
+
+		LocalDate first = LocalDate.of(2000, 1, 1);
+		for (int i = 0; i < PETS; i++) {
+			LocalDate birthDate = first.plusDays(i);
+			pets.add(new Pet(i + 1, "Pet" + i, 1 + i % 6, 1 + i % 10, birthDate));
+			legacyBirthDates.add(Date.from(birthDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+		}
+	}
+
+	@Benchmark
+	public List<PetDTO> mapToDtoList() {
+		return mapper.mapToDtoList(pets);
+	}
+
+	@Benchmark
+	public List<PetDTO> legacyMapToDtoList() {
+
+		List<PetDTO> dtos = new ArrayList<>(PETS);
+
+		for (int i = 0; i < PETS; i++) {
+			Pet pet = pets.get(i);
+			dtos.add(PetDTO.builder()
+					.id(pet.getId())
+					.name(pet.getName())
+					.typeId(pet.getTypeId())
+					.ownerId(pet.getOwnerId())
+					.birthDate(legacyDateToString(legacyBirthDates.get(i)))
+					.build());
+		}
+
+		return dtos;
+	}
+
+	private static String legacyDateToString(Date date) {
+		if (date != null) {
+			SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+			return dateFormat.format(date);
+		} else {
+			return "";
+		}
+	}
+
+}
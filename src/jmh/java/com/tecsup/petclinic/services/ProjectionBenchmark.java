@@ -0,0 +1,87 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.BenchmarkContext;
+import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.mapper.OwnerMapper;
+import com.tecsup.petclinic.mapper.PetMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The list endpoints read two ways : managed entities copied by the mapper
+ * (entity*) against DTOs selected by the query (projection*). The gc
+ * profiler of the jmh profile reports the memory of each as
+ * gc.alloc.rate.norm, in bytes per call.
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.args=ProjectionBenchmark
+ *
+ * @author jgomezm
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+	private ConfigurableApplicationContext context;
+
+	private PetService petService;
+
+	private OwnerService ownerService;
+
+	private PetMapper petMapper;
+
+	private OwnerMapper ownerMapper;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkContext.start();
+		petService = context.getBean(PetService.class);
+		ownerService = context.getBean(OwnerService.class);
+		petMapper = context.getBean(PetMapper.class);
+		ownerMapper = context.getBean(OwnerMapper.class);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<PetDTO> entityPets() {
+		return petMapper.mapToDtoList(petService.findAll());
+	}
+
+	@Benchmark
+	public List<PetDTO> projectionPets() {
+		return petService.findAllDto();
+	}
+
+	@Benchmark
+	public List<OwnerDTO> entityOwners() {
+		return ownerMapper.mapToDtoList(ownerService.findAll());
+	}
+
+	@Benchmark
+	public List<OwnerDTO> projectionOwners() {
+		return ownerService.findAllDto();
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.BenchmarkContext;
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
+import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of the read paths of PetServiceImpl and OwnerServiceImpl
+ * against the embedded H2 database.
+ *
+ * @author jgomezm
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+
+	private ConfigurableApplicationContext context;
+
+	private PetService petService;
+
+	private OwnerService ownerService;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkContext.start();
+		petService = context.getBean(PetService.class);
+		ownerService = context.getBean(OwnerService.class);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public PetDTO petFindById() throws PetNotFoundException {
+		return petService.findById(1);
+	}
+
+	@Benchmark
+	public List<PetDTO> petFindByName() {
+		return petService.findByName("Leo");
+	}
+
+	@Benchmark
+	public KeysetPageDTO<PetDTO> petFindPage() {
+		return petService.findPage(null, 20);
+	}
+
+	@Benchmark
+	public OwnerDTO ownerFindById() throws OwnerNotFoundException {
+		return ownerService.findById(1L);
+	}
+
+	@Benchmark
+	public List<OwnerDTO> ownerFindByFirstName() {
+		return ownerService.findByFirstName("George");
+	}
+
+	@Benchmark
+	public KeysetPageDTO<OwnerDTO> ownerFindPage() {
+		return ownerService.findPage(null, 20);
+	}
+
+}
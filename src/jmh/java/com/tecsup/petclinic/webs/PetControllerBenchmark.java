@@ -0,0 +1,79 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Average time of full MockMvc round trips through PetController :
+ * dispatch, service, H2 and JSON serialization.
+ *
+ * @author jgomezm
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PetControllerBenchmark {
+
+	private static final String UPDATE_PET = "{\"name\":\"Leo\",\"typeId\":1,\"ownerId\":1,\"birthDate\":\"2000-09-07\"}";
+
+	private ConfigurableApplicationContext context;
+
+	private MockMvc mockMvc;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkContext.start();
+		mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public String findAllPets() throws Exception {
+		return mockMvc.perform(get("/pets")).andReturn().getResponse().getContentAsString();
+	}
+
+	@Benchmark
+	public String findPetById() throws Exception {
+		return mockMvc.perform(get("/pets/1")).andReturn().getResponse().getContentAsString();
+	}
+
+	@Benchmark
+	public String findPetsPage() throws Exception {
+		return mockMvc.perform(get("/pets/page").param("size", "20")).andReturn().getResponse().getContentAsString();
+	}
+
+	@Benchmark
+	public String updatePet() throws Exception {
+		return mockMvc.perform(put("/pets/1").contentType(MediaType.APPLICATION_JSON).content(UPDATE_PET))
+				.andReturn().getResponse().getContentAsString();
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.tecsup.petclinic.config;
+
+import com.tecsup.petclinic.exceptions.DatabaseBusyException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets at most <code>permits</code> connections out of the pool at a time,
+ * in arrival order, and refuses new requests once <code>maxWaiting</code>
+ * are queued or after waiting <code>timeoutMillis</code>.
+ *
+ * With virtual threads there is no Tomcat thread limit in front of the pool,
+ * so thousands of requests can wait on Hikari at once and time out together.
+ * This keeps the queue short and fails the extra requests fast instead.
+ *
+ * @author jgomezm
+ *
+ */
+public class AdmissionDataSource extends DelegatingDataSource {
+
+	private final Semaphore permits;
+
+	private final int maxWaiting;
+
+	private final long timeoutMillis;
+
+	private final AtomicInteger waiting = new AtomicInteger();
+
+	public AdmissionDataSource(DataSource target, int permits, int maxWaiting, long timeoutMillis) {
+		super(target);
+		this.permits = new Semaphore(permits, true);
+		this.maxWaiting = maxWaiting;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		return admitted(super::getConnection);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		return admitted(() -> super.getConnection(username, password));
+	}
+
+	/**
+	 * Requests waiting for a connection
+	 *
+	 * @return
+	 */
+	public int getWaiting() {
+		return waiting.get();
+	}
+
+	/**
+	 * Connections that can still be handed out without waiting
+	 *
+	 * @return
+	 */
+	public int getAvailable() {
+		return permits.availablePermits();
+	}
+
+	private void acquire() throws SQLException {
+
+		if (waiting.incrementAndGet() > maxWaiting) {
+			waiting.decrementAndGet();
+			throw new DatabaseBusyException("Too many requests waiting for a connection");
+		}
+
+		try {
+			if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS))
+				throw new DatabaseBusyException("No connection available after " + timeoutMillis + " ms");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DatabaseBusyException("Interrupted waiting for a connection");
+		} finally {
+			waiting.decrementAndGet();
+		}
+	}
+
+	private Connection admitted(ConnectionSupplier supplier) throws SQLException {
+
+		Connection connection;
+		try {
+			connection = supplier.get();
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+
+		AtomicBoolean released = new AtomicBoolean();
+
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "close":
+						if (released.compareAndSet(false, true))
+							permits.release();
+						break;
+					default:
+						break;
+					}
+					try {
+						return method.invoke(connection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	@FunctionalInterface
+	private interface ConnectionSupplier {
+		Connection get() throws SQLException;
+	}
+
+}
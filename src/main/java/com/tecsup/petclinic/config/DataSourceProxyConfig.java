@@ -0,0 +1,107 @@
+package com.tecsup.petclinic.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Wraps the DataSource in a datasource-proxy that counts the statements,
+ * rows and JDBC time of the current thread into {@link SqlStats}, and
+ * records them into {@link SqlCapture} when asked to.
+ *
+ * The rows read are only counted with petclinic.sql.stats.enabled (dev and
+ * tests) : it proxies every ResultSet and intercepts each next(). Otherwise
+ * the rows are those updated.
+ *
+ * @author jgomezm
+ *
+ */
+@Configuration
+public class DataSourceProxyConfig {
+
+	@Bean
+	static BeanPostProcessor dataSourceProxyPostProcessor(Environment environment) {
+
+		boolean countRowsRead = environment.getProperty("petclinic.sql.stats.enabled", Boolean.class, false);
+
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+				if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource)
+					return bean;
+
+				ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource)
+						.name(beanName)
+						.listener(new StatementListener());
+
+				if (countRowsRead)
+					builder.proxyResultSet().methodListener(new RowListener());
+
+				return builder.build();
+			}
+		};
+	}
+
+	/**
+	 * Counts every executed statement and the rows it updated
+	 */
+	static class StatementListener implements QueryExecutionListener {
+
+		@Override
+		public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+			SqlStats.current().startStatement();
+		}
+
+		@Override
+		public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+			SqlStats.current().endStatement(updatedRows(execInfo.getResult()));
+			SqlCapture.record(queryInfoList);
+		}
+
+		private long updatedRows(Object result) {
+
+			if (result instanceof Number count)
+				return Math.max(count.longValue(), 0);
+
+			long rows = 0;
+			if (result instanceof int[] counts)
+				for (int count : counts)
+					rows += Math.max(count, 0);
+			return rows;
+		}
+	}
+
+	/**
+	 * Counts the rows read, one per successful ResultSet.next()
+	 */
+	static class RowListener implements MethodExecutionListener {
+
+		@Override
+		public void beforeMethod(MethodExecutionContext executionContext) {
+		}
+
+		@Override
+		public void afterMethod(MethodExecutionContext executionContext) {
+
+			if (executionContext.getTarget() instanceof ResultSet
+					&& "next".equals(executionContext.getMethod().getName())
+					&& Boolean.TRUE.equals(executionContext.getResult()))
+				SqlStats.current().addRow();
+		}
+	}
+
+}
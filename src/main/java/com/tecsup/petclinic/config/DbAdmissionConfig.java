@@ -0,0 +1,77 @@
+package com.tecsup.petclinic.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Database admission control, see {@link AdmissionDataSource}.
+ * Enabled with petclinic.db.admission.enabled, as in the virtual-threads
+ * profile.
+ *
+ * @author jgomezm
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "petclinic.db.admission.enabled", havingValue = "true")
+public class DbAdmissionConfig {
+
+	@Bean
+	static BeanPostProcessor dbAdmissionPostProcessor(Environment environment) {
+
+		// One permit per pooled connection unless told otherwise
+		int permits = environment.getProperty("petclinic.db.admission.permits", Integer.class,
+				environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+		int maxWaiting = environment.getProperty("petclinic.db.admission.max-waiting", Integer.class, 200);
+		long timeoutMillis = environment.getProperty("petclinic.db.admission.timeout-ms", Long.class, 2000L);
+
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+				if (!(bean instanceof DataSource dataSource) || bean instanceof AdmissionDataSource)
+					return bean;
+
+				return new AdmissionDataSource(dataSource, permits, maxWaiting, timeoutMillis);
+			}
+		};
+	}
+
+	@Bean
+	MeterBinder dbAdmissionMetrics(DataSource dataSource) {
+		return registry -> {
+			AdmissionDataSource admission = unwrap(dataSource);
+			Gauge.builder("petclinic.db.admission.waiting", admission, AdmissionDataSource::getWaiting)
+					.description("Requests waiting for a database connection")
+					.register(registry);
+			Gauge.builder("petclinic.db.admission.available", admission, AdmissionDataSource::getAvailable)
+					.description("Database connections that can be handed out without waiting")
+					.register(registry);
+		};
+	}
+
+	// Migrations run before any request, on their own connections : not
+	// through the permits, which may be fewer than Flyway needs
+	@Bean
+	FlywayConfigurationCustomizer flywayWithoutAdmission(DataSource dataSource) {
+		return configuration -> configuration.dataSource(unwrap(dataSource).getTargetDataSource());
+	}
+
+	private static AdmissionDataSource unwrap(DataSource dataSource) {
+		try {
+			return dataSource.unwrap(AdmissionDataSource.class);
+		} catch (SQLException e) {
+			throw new IllegalStateException("DataSource is not wrapped for admission control", e);
+		}
+	}
+
+}
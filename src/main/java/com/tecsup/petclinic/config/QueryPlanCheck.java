@@ -0,0 +1,204 @@
+package com.tecsup.petclinic.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Runs every finder of the repositories once at startup, with sample
+ * arguments and in a rolled back transaction, EXPLAINs the SQL it sent
+ * and warns about the ones reading a whole table: a query on a column
+ * without an index.
+ *
+ * Finders without parameters read the whole table by design and are
+ * skipped. Understands the plans of H2 and MySQL. Only after a startup
+ * that migrated the schema, warm restarts skip it. Disabled with
+ * petclinic.query-plan-check.enabled=false.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "petclinic.query-plan-check.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class QueryPlanCheck {
+
+	// H2 plan comment of a table read without an index : /* PUBLIC.OWNERS.tableScan */
+	private static final Pattern H2_TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+
+	private final ApplicationContext context;
+
+	private final DataSource dataSource;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final SchemaMigrations schemaMigrations;
+
+	public QueryPlanCheck(ApplicationContext context, DataSource dataSource,
+			PlatformTransactionManager transactionManager, SchemaMigrations schemaMigrations) {
+		this.context = context;
+		this.dataSource = dataSource;
+		this.schemaMigrations = schemaMigrations;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onStartup() {
+
+		// Same schema as the last check
+		if (!schemaMigrations.isSchemaChanged()) {
+			log.debug("Query plan check skipped, no migration applied");
+			return;
+		}
+
+		long start = System.nanoTime();
+		List<String> fullScans = check();
+
+		if (fullScans.isEmpty())
+			log.info("Query plan check : no full table scan, in {} ms", (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Finders whose SQL reads a whole table
+	 *
+	 * @return as Repository.method
+	 */
+	public List<String> check() {
+
+		List<String> fullScans = new ArrayList<>();
+		Repositories repositories = new Repositories(context);
+
+		for (Class<?> domainType : repositories) {
+
+			RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+			Object repository = repositories.getRepositoryFor(domainType).orElseThrow();
+			Class<?> repositoryInterface = information.getRepositoryInterface();
+
+			for (Method method : repositoryInterface.getDeclaredMethods()) {
+
+				if (!method.getName().startsWith("find") || method.getParameterCount() == 0)
+					continue;
+
+				String finder = repositoryInterface.getSimpleName() + "." + method.getName();
+				Object[] arguments = sampleArguments(method);
+				if (arguments == null) {
+					log.debug("Query plan check : {} skipped, no sample arguments", finder);
+					continue;
+				}
+
+				for (SqlCapture.Statement statement : run(repository, method, arguments)) {
+					Optional<String> table = fullScan(statement);
+					if (table.isPresent()) {
+						log.warn("Query plan check : {} reads all of {} : {}", finder, table.get(), statement.sql());
+						fullScans.add(finder);
+					}
+				}
+			}
+		}
+
+		return fullScans;
+	}
+
+	private List<SqlCapture.Statement> run(Object repository, Method method, Object[] arguments) {
+
+		return transactionTemplate.execute(status -> {
+			status.setRollbackOnly();
+			SqlCapture.start();
+			try {
+				if (method.invoke(repository, arguments) instanceof Stream<?> stream)
+					stream.close();
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				log.debug("Query plan check : {} failed", method, e);
+			}
+			return SqlCapture.stop();
+		});
+	}
+
+	private Optional<String> fullScan(SqlCapture.Statement statement) {
+
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+
+			for (int i = 0; i < statement.parameters().size(); i++)
+				explain.setObject(i + 1, statement.parameters().get(i));
+
+			boolean mysql = connection.getMetaData().getDatabaseProductName().startsWith("MySQL");
+
+			try (ResultSet plan = explain.executeQuery()) {
+				while (plan.next()) {
+					if (mysql) {
+						// On small tables MySQL may scan anyway, only flag when no index could be used
+						if ("ALL".equals(plan.getString("type")) && plan.getString("possible_keys") == null)
+							return Optional.of(plan.getString("table"));
+					} else {
+						Matcher scan = H2_TABLE_SCAN.matcher(plan.getString(1));
+						if (scan.find())
+							return Optional.of(scan.group(1));
+					}
+				}
+			}
+		} catch (SQLException e) {
+			log.debug("Query plan check : cannot explain {}", statement.sql(), e);
+		}
+
+		return Optional.empty();
+	}
+
+	// Any value of the right type, the plan does not depend on it
+	private static Object[] sampleArguments(Method method) {
+
+		Class<?>[] types = method.getParameterTypes();
+		Object[] arguments = new Object[types.length];
+
+		for (int i = 0; i < types.length; i++) {
+			Class<?> type = types[i];
+			if (type == String.class)
+				arguments[i] = "x";
+			else if (type == Integer.class || type == int.class)
+				arguments[i] = 1;
+			else if (type == Long.class || type == long.class)
+				arguments[i] = 1L;
+			else if (type == BigDecimal.class)
+				arguments[i] = BigDecimal.ONE;
+			else if (type == LocalDate.class)
+				arguments[i] = LocalDate.now();
+			else if (type == LocalDateTime.class)
+				arguments[i] = LocalDateTime.now();
+			else if (type == Limit.class)
+				arguments[i] = Limit.of(1);
+			else if (Collection.class.isAssignableFrom(type))
+				arguments[i] = List.of(1);
+			else
+				return null;
+		}
+
+		return arguments;
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.tecsup.petclinic.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Primary and replica connection pools behind one
+ * {@link ReplicaRoutingDataSource}, when petclinic.datasource.replica.url is
+ * set. The primary is configured as usual (spring.datasource.*), the replica
+ * with petclinic.datasource.replica.* : url, username and password (the
+ * primary ones by default), hikari.*, max-lag-ms and lag-check-ms.
+ *
+ * The pools are not beans of their own, so the datasource proxy and the
+ * admission control wrap the routing DataSource once.
+ *
+ * @author jgomezm
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "petclinic.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+	@Bean
+	ReplicaRoutingDataSource dataSource(DataSourceProperties properties, Environment environment) {
+
+		Binder binder = Binder.get(environment);
+
+		HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+		if (primary.getPoolName() == null)
+			primary.setPoolName("primary");
+
+		HikariDataSource replica = new HikariDataSource();
+		replica.setPoolName("replica");
+		replica.setJdbcUrl(environment.getRequiredProperty("petclinic.datasource.replica.url"));
+		replica.setUsername(environment.getProperty("petclinic.datasource.replica.username", primary.getUsername()));
+		replica.setPassword(environment.getProperty("petclinic.datasource.replica.password", primary.getPassword()));
+		replica.setReadOnly(true);
+		binder.bind("petclinic.datasource.replica.hikari", Bindable.ofInstance(replica));
+
+		ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(primary, replica,
+				environment.getProperty("petclinic.datasource.replica.max-lag-ms", Long.class, 5000L),
+				environment.getProperty("petclinic.datasource.replica.lag-check-ms", Long.class, 1000L));
+
+		return new ReplicaRoutingDataSource(primary, replica, lagMonitor);
+	}
+
+	// Give the connection back at the end of each transaction, also with
+	// open-in-view : the next transaction of the request routes on its own
+	@Bean
+	HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+		return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+				PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+	}
+
+}
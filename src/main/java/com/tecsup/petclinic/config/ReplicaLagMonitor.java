@@ -0,0 +1,127 @@
+package com.tecsup.petclinic.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how far the replica is behind the primary : writes the time in
+ * replica_heartbeat on the primary and reads the last one replicated. A
+ * replica showing the last beat written has everything : no lag. Else it
+ * is behind by the age of the beat it shows. While the lag is over
+ * max-lag, or the replica cannot be read, the reads go to the primary.
+ *
+ * @author jgomezm
+ *
+ */
+@Slf4j
+public class ReplicaLagMonitor implements Closeable {
+
+	private final JdbcTemplate primary;
+
+	private final JdbcTemplate replica;
+
+	private final long maxLagMillis;
+
+	private final ScheduledExecutorService scheduler;
+
+	private volatile long lagMillis = Long.MAX_VALUE;
+
+	// Beat written on the primary by the last check, none yet at startup
+	private long lastWritten = Long.MAX_VALUE;
+
+	private volatile boolean replicaUsable;
+
+	public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMillis, long checkMillis) {
+
+		this.primary = new JdbcTemplate(primary);
+		this.replica = new JdbcTemplate(replica);
+		this.maxLagMillis = maxLagMillis;
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "replica-lag");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::check, 0, checkMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Measure the lag now
+	 */
+	public synchronized void check() {
+
+		long now = System.currentTimeMillis();
+		long lag;
+
+		try {
+			// Replicated beat first, the one written now is not there yet
+			Long beat = replica.queryForObject("SELECT beat FROM replica_heartbeat WHERE id = 1", Long.class);
+			if (beat == null)
+				lag = Long.MAX_VALUE;
+			else if (beat >= lastWritten)
+				lag = 0;
+			else
+				lag = Math.max(now - beat, 0);
+
+			primary.update("UPDATE replica_heartbeat SET beat = ? WHERE id = 1", now);
+			lastWritten = now;
+		} catch (DataAccessException e) {
+			log.debug("Replica lag check failed", e);
+			lag = Long.MAX_VALUE;
+		}
+
+		lagMillis = lag;
+		update(lag <= maxLagMillis);
+	}
+
+	/**
+	 * The replica could not give a connection, read from the primary until
+	 * the next check
+	 */
+	public void replicaFailed() {
+		update(false);
+	}
+
+	/**
+	 * Whether reads can go to the replica
+	 *
+	 * @return
+	 */
+	public boolean isReplicaUsable() {
+		return replicaUsable;
+	}
+
+	/**
+	 * Last measured lag, Long.MAX_VALUE when unknown
+	 *
+	 * @return in milliseconds
+	 */
+	public long getLagMillis() {
+		return lagMillis;
+	}
+
+	private void update(boolean usable) {
+
+		if (usable != replicaUsable) {
+			if (usable)
+				log.info("Replica lag {} ms : reads go to the replica", lagMillis);
+			else
+				log.warn("Replica lag {} over {} ms or replica unavailable : reads go to the primary",
+						lagMillis == Long.MAX_VALUE ? "unknown" : lagMillis, maxLagMillis);
+		}
+		replicaUsable = usable;
+	}
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.tecsup.petclinic.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sends the read-only transactions (@Transactional(readOnly = true)) to the
+ * replica pool and everything else to the primary pool.
+ *
+ * The real connection is taken at the first statement, once the transaction
+ * is started and known to be read-only. The replica is left out while
+ * {@link ReplicaLagMonitor} finds it behind or when it cannot give a
+ * connection.
+ *
+ * @author jgomezm
+ *
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+	private final HikariDataSource primary;
+
+	private final HikariDataSource replica;
+
+	private final ReplicaLagMonitor lagMonitor;
+
+	public ReplicaRoutingDataSource(HikariDataSource primary, HikariDataSource replica, ReplicaLagMonitor lagMonitor) {
+		this.primary = primary;
+		this.replica = replica;
+		this.lagMonitor = lagMonitor;
+		setTargetDataSource(new Router());
+		afterPropertiesSet();
+	}
+
+	/**
+	 * Lag of the replica, also to check it on demand
+	 *
+	 * @return
+	 */
+	public ReplicaLagMonitor getLagMonitor() {
+		return lagMonitor;
+	}
+
+	@Override
+	public void close() {
+		lagMonitor.close();
+		replica.close();
+		primary.close();
+	}
+
+	/**
+	 * Picks the pool when the connection is first used
+	 */
+	private class Router extends AbstractDataSource {
+
+		@Override
+		public Connection getConnection() throws SQLException {
+
+			if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && lagMonitor.isReplicaUsable()) {
+				try {
+					return replica.getConnection();
+				} catch (SQLException e) {
+					log.warn("No connection from the replica, reading from the primary", e);
+					lagMonitor.replicaFailed();
+				}
+			}
+
+			return primary.getConnection();
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return primary.getConnection(username, password);
+		}
+	}
+
+}
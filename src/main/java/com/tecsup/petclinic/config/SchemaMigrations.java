@@ -0,0 +1,52 @@
+package com.tecsup.petclinic.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the pending Flyway migrations at startup. The checksums of the
+ * applied ones are validated first, so an edited migration stops the boot
+ * instead of drifting from the database.
+ *
+ * On a warm restart nothing is pending and no schema work is done : the
+ * time taken does not depend on the data, only on reading the history
+ * table. {@link #isSchemaChanged()} tells the other startup checks.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class SchemaMigrations implements FlywayMigrationStrategy {
+
+	private volatile boolean schemaChanged;
+
+	@Override
+	public void migrate(Flyway flyway) {
+
+		long start = System.nanoTime();
+		MigrateResult result = flyway.migrate();
+		long millis = (System.nanoTime() - start) / 1_000_000;
+
+		schemaChanged = result.migrationsExecuted > 0;
+
+		if (schemaChanged)
+			log.info("Schema migrated to version {} : {} migrations in {} ms", result.targetSchemaVersion,
+					result.migrationsExecuted, millis);
+		else
+			log.info("Schema up to date at version {}, checked in {} ms", result.initialSchemaVersion, millis);
+	}
+
+	/**
+	 * Whether migrations were applied during this startup
+	 *
+	 * @return
+	 */
+	public boolean isSchemaChanged() {
+		return schemaChanged;
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.tecsup.petclinic.config;
+
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL, with its parameters, sent by the current thread between
+ * {@link #start()} and {@link #stop()}. Filled by the datasource proxy.
+ *
+ * @author jgomezm
+ *
+ */
+public class SqlCapture {
+
+	private static final ThreadLocal<List<Statement>> CAPTURED = new ThreadLocal<>();
+
+	/**
+	 * A statement as sent to the driver
+	 *
+	 * @param sql
+	 * @param parameters values of the ? placeholders, in order
+	 */
+	public record Statement(String sql, List<Object> parameters) {
+	}
+
+	/**
+	 * Start recording on the current thread
+	 */
+	public static void start() {
+		CAPTURED.set(new ArrayList<>());
+	}
+
+	/**
+	 * Stop recording on the current thread
+	 *
+	 * @return the statements sent since {@link #start()}
+	 */
+	public static List<Statement> stop() {
+		List<Statement> captured = CAPTURED.get();
+		CAPTURED.remove();
+		return captured == null ? List.of() : captured;
+	}
+
+	static void record(List<QueryInfo> queries) {
+
+		List<Statement> captured = CAPTURED.get();
+		if (captured == null)
+			return;
+
+		for (QueryInfo query : queries)
+			captured.add(new Statement(query.getQuery(), parameters(query)));
+	}
+
+	// Parameters of the first execution, a batch repeats the same statement
+	private static List<Object> parameters(QueryInfo query) {
+
+		List<Object> values = new ArrayList<>();
+		if (query.getParametersList().isEmpty())
+			return values;
+
+		for (ParameterSetOperation operation : query.getParametersList().get(0))
+			values.add("setNull".equals(operation.getMethod().getName()) ? null : operation.getArgs()[1]);
+		return values;
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.tecsup.petclinic.config;
+
+/**
+ * SQL statements, rows and JDBC time of the current thread, filled by the
+ * datasource proxy and reset at the start of every request.
+ *
+ * @author jgomezm
+ *
+ */
+public class SqlStats {
+
+	private static final ThreadLocal<SqlStats> CURRENT = ThreadLocal.withInitial(SqlStats::new);
+
+	// Round trips to the database, a JDBC batch counts as one
+	private long statements;
+
+	// Rows read from result sets plus rows updated
+	private long rows;
+
+	private long jdbcNanos;
+
+	private long startNanos;
+
+	/**
+	 * Statistics of the current thread
+	 *
+	 * @return
+	 */
+	public static SqlStats current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Start counting from zero on the current thread
+	 */
+	public static void reset() {
+		SqlStats stats = CURRENT.get();
+		stats.statements = 0;
+		stats.rows = 0;
+		stats.jdbcNanos = 0;
+	}
+
+	void startStatement() {
+		startNanos = System.nanoTime();
+	}
+
+	void endStatement(long updatedRows) {
+		statements++;
+		jdbcNanos += System.nanoTime() - startNanos;
+		rows += updatedRows;
+	}
+
+	void addRow() {
+		rows++;
+	}
+
+	public long getStatements() {
+		return statements;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getJdbcNanos() {
+		return jdbcNanos;
+	}
+
+}
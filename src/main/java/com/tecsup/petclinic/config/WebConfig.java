@@ -0,0 +1,47 @@
+package com.tecsup.petclinic.config;
+
+import com.tecsup.petclinic.webs.ConcurrencyLimitInterceptor;
+import com.tecsup.petclinic.webs.QueryMetricsInterceptor;
+import com.tecsup.petclinic.webs.RequestLogInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC configuration
+ *
+ * @author jgomezm
+ *
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+	private RequestLogInterceptor requestLogInterceptor;
+
+	private QueryMetricsInterceptor queryMetricsInterceptor;
+
+	private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+	/**
+	 * Constructor with dependency injection
+	 *
+	 * @param requestLogInterceptor
+	 * @param queryMetricsInterceptor
+	 * @param concurrencyLimitInterceptor
+	 */
+	public WebConfig(RequestLogInterceptor requestLogInterceptor, QueryMetricsInterceptor queryMetricsInterceptor,
+			ConcurrencyLimitInterceptor concurrencyLimitInterceptor) {
+		this.requestLogInterceptor = requestLogInterceptor;
+		this.queryMetricsInterceptor = queryMetricsInterceptor;
+		this.concurrencyLimitInterceptor = concurrencyLimitInterceptor;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		// First : a shed request is only counted, not logged one by one
+		registry.addInterceptor(concurrencyLimitInterceptor);
+		registry.addInterceptor(requestLogInterceptor);
+		registry.addInterceptor(queryMetricsInterceptor);
+	}
+
+}
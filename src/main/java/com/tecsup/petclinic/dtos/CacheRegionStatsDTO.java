@@ -0,0 +1,29 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the hit / miss counters of a second-level cache region
+ * 
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class CacheRegionStatsDTO {
+
+	private String region;
+
+	private long hits;
+
+	private long misses;
+
+	private long puts;
+
+}
@@ -0,0 +1,39 @@
+package com.tecsup.petclinic.dtos;
+
+import com.tecsup.petclinic.entities.ChangeEvent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change of the /changes feed and of the sink. The seq orders the changes,
+ * the id tells the ones already seen : a change may be delivered twice.
+ *
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class ChangeEventDTO {
+
+	private Long id;
+
+	private Long seq;
+
+	private ChangeEvent.Kind entityType;
+
+	private Long entityId;
+
+	private ChangeEvent.Operation operation;
+
+	private Integer version;
+
+	private LocalDateTime changedAt;
+
+}
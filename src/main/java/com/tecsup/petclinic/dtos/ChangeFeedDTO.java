@@ -0,0 +1,33 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page of the /changes feed.
+ *
+ * Unlike {@link KeysetPageDTO}, <code>next</code> is always set : the
+ * cursor to send back as <code>since</code>, now or on the next poll.
+ * <code>more</code> tells whether changes after it can be read already.
+ *
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class ChangeFeedDTO {
+
+	private List<ChangeEventDTO> changes;
+
+	private Long next;
+
+	private boolean more;
+
+}
@@ -0,0 +1,34 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Row of a GROUP BY : the group key (a type id, a city, a vet id...), the
+ * number of rows and, for the visits, the sum of their cost
+ *
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class CountDTO {
+
+	private Object key;
+
+	private Long count;
+
+	private BigDecimal total;
+
+	public CountDTO(Object key, Long count) {
+		this(key, count, null);
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page of records read with keyset (seek) pagination.
+ *
+ * <code>next</code> is the cursor to send back as <code>after</code>
+ * to read the following page, null when there are no more records.
+ *
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class KeysetPageDTO<T> {
+
+	public static final int DEFAULT_SIZE = 20;
+
+	public static final int MAX_SIZE = 100;
+
+	private List<T> items;
+
+	private String next;
+
+	/**
+	 * Clamp the requested page size to [1, MAX_SIZE]
+	 *
+	 * @param size
+	 * @return
+	 */
+	public static int boundedSize(Integer size) {
+		if (size == null || size < 1)
+			return DEFAULT_SIZE;
+		return Math.min(size, MAX_SIZE);
+	}
+
+	/**
+	 * Build a page from a query that read one row more than the page size,
+	 * so the extra row tells whether a next page exists.
+	 *
+	 * @param rows
+	 * @param size
+	 * @param key
+	 * @return
+	 */
+	public static <T> KeysetPageDTO<T> of(List<T> rows, int size, Function<T, ?> key) {
+		if (rows.size() <= size)
+			return new KeysetPageDTO<>(rows, null);
+
+		List<T> items = rows.subList(0, size);
+		return new KeysetPageDTO<>(items, String.valueOf(key.apply(items.get(size - 1))));
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Hours a vet sees patients for one of its specialties, those of the
+ * specialty office
+ *
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class OpeningHoursDTO {
+
+	private Integer specialtyId;
+
+	private String office;
+
+	private Integer openHour;
+
+	private Integer closeHour;
+
+	private Boolean primarySpecialty;
+
+}
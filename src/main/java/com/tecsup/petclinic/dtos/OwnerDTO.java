@@ -1,10 +1,14 @@
 package com.tecsup.petclinic.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * DTO for Owner entity
  * 
@@ -30,4 +34,18 @@ public class OwnerDTO {
 	
 	private String telephone;
 
+	// Sent back as the ETag, ignored in request bodies (use If-Match)
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private Integer version;
+
+	// Only with include=pets, left out of the JSON otherwise
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<PetDTO> pets;
+
+	// Selected by OwnerRepository.DTO_SELECT, without the pets
+	public OwnerDTO(Long id, String firstName, String lastName, String address, String city, String telephone,
+			Integer version) {
+		this(id, firstName, lastName, address, city, telephone, version, null);
+	}
+
 }
@@ -1,5 +1,6 @@
 package com.tecsup.petclinic.dtos;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -28,4 +29,8 @@ public class PetDTO {
 
 	private String birthDate;
 
+	// Sent back as the ETag, ignored in request bodies (use If-Match)
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private Integer version;
+
 }
@@ -0,0 +1,34 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Free appointment slot of a vet, booked with its date and start
+ *
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class SlotDTO {
+
+	private Integer specialtyId;
+
+	private String office;
+
+	private LocalDate date;
+
+	private LocalTime start;
+
+	private LocalTime end;
+
+}
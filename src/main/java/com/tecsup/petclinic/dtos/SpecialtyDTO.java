@@ -22,4 +22,11 @@ public class SpecialtyDTO {
 	
 	private String name;
 
+	private String office;
+
+	// Opening hours of the office, whole hours of the day
+	private Integer openHour;
+
+	private Integer closeHour;
+
 }
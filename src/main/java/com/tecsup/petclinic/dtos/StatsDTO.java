@@ -0,0 +1,45 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Counters of the clinic : totals, pets by type id, owners by city and
+ * visits and revenue (sum of the visits cost) by vet id
+ *
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class StatsDTO {
+
+	private long pets;
+
+	private long owners;
+
+	private long visits;
+
+	private BigDecimal revenue;
+
+	private Map<Integer, Long> petsByType;
+
+	private Map<String, Long> ownersByCity;
+
+	private Map<Integer, Long> visitsByVet;
+
+	private Map<Integer, BigDecimal> revenueByVet;
+
+	// Last time the counters were checked against the tables
+	private LocalDateTime reconciledAt;
+
+}
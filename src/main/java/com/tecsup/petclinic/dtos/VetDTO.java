@@ -1,10 +1,13 @@
 package com.tecsup.petclinic.dtos;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * DTO for Vet entity
  * 
@@ -24,4 +27,10 @@ public class VetDTO {
 	
 	private String lastName;
 
+	private List<String> specialties;
+
+	// Sent back as the ETag, ignored in request bodies (use If-Match)
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private Integer version;
+
 }
@@ -0,0 +1,39 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO for Visit entity
+ *
+ * @author jgomezm
+ *
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class VisitDTO {
+
+	private Long id;
+
+	private Integer petId;
+
+	private Integer vetId;
+
+	private LocalDate visitDate;
+
+	private LocalTime visitTime;
+
+	private String description;
+
+	private BigDecimal cost;
+
+}
@@ -0,0 +1,71 @@
+package com.tecsup.petclinic.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change to a pet, owner, vet or specialty, written in the transaction of
+ * the change (outbox) : committed with it or not at all.
+ *
+ * @author jgomezm
+ *
+ */
+@NoArgsConstructor
+@Entity(name = "change_events")
+@Data
+public class ChangeEvent {
+
+	public enum Kind {
+		PET, OWNER, VET, SPECIALTY
+	}
+
+	public enum Operation {
+		CREATE, UPDATE, DELETE
+	}
+
+	// Reserved in blocks from id_generators, so the outbox inserts are
+	// batched with the changes. Tells the changes apart, seq orders them
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "change_events_id")
+	@TableGenerator(name = "change_events_id", table = "id_generators", pkColumnName = "name",
+			valueColumnName = "next_val", pkColumnValue = "change_events", allocationSize = 50)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "entity_type")
+	private Kind entityType;
+
+	@Column(name = "entity_id")
+	private Long entityId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "operation")
+	private Operation operation;
+
+	// Version after the change, null for deletes and unversioned entities
+	@Column(name = "version")
+	private Integer version;
+
+	@Column(name = "changed_at")
+	private LocalDateTime changedAt;
+
+	// Position in the feed, set by ChangeRelay once the change is committed,
+	// in the order it sees them
+	@Column(name = "seq")
+	private Long seq;
+
+	// Sent to the sink by ChangeRelay
+	@Column(name = "relayed")
+	private boolean relayed;
+
+	public ChangeEvent(Kind entityType, Number entityId, Operation operation, Integer version) {
+		this.entityType = entityType;
+		this.entityId = entityId.longValue();
+		this.operation = operation;
+		this.version = version;
+		this.changedAt = LocalDateTime.now();
+	}
+}
@@ -19,9 +19,16 @@ import java.util.Set;
 public class Owner {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "owners_id")
+	@TableGenerator(name = "owners_id", table = "id_generators", pkColumnName = "name",
+			valueColumnName = "next_val", pkColumnValue = "owners", allocationSize = 50)
 	private Long id;
 
+	// Incremented by every update, checked against If-Match
+	@Version
+	@Column(name = "version")
+	private Integer version;
+
 	@Column(name = "first_name")
 	private String firstName;
 
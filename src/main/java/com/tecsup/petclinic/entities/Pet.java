@@ -7,7 +7,7 @@ import lombok.ToString;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import jakarta.persistence.*;
-import java.util.Date;
+import java.time.LocalDate;
 import java.util.Set;
 
 /**
@@ -21,9 +21,16 @@ import java.util.Set;
 public class Pet {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "pets_id")
+	@TableGenerator(name = "pets_id", table = "id_generators", pkColumnName = "name",
+			valueColumnName = "next_val", pkColumnValue = "pets", allocationSize = 50)
 	private Integer id;
 
+	// Incremented by every update, checked against If-Match
+	@Version
+	@Column(name = "version")
+	private Integer version;
+
 	@Column(name = "name")
 	private String name;
 
@@ -35,12 +42,12 @@ public class Pet {
 
 	@DateTimeFormat(pattern = "yyyy-MM-dd")
 	@Column(name = "birth_date")
-	private Date birthDate;
+	private LocalDate birthDate;
 
 
 	@OneToMany(mappedBy = "pet", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	@ToString.Exclude
-	//@EqualsAndHashCode.Exclude
+	@EqualsAndHashCode.Exclude
 	private Set<Visit> visits;
 
 //	@ManyToOne(fetch = FetchType.LAZY)
@@ -53,7 +60,7 @@ public class Pet {
 //	@ToString.Exclude
 //	private Owner owner;
 
-	public Pet(Integer id, String name, int type_id, int owner_id, Date birthDate) {
+	public Pet(Integer id, String name, int type_id, int owner_id, LocalDate birthDate) {
 		super();
 		this.id = id;
 		this.name = name;
@@ -63,7 +70,7 @@ public class Pet {
 
 	}
 
-	public Pet(String name, int type_id, int owner_id, Date birthDate) {
+	public Pet(String name, int type_id, int owner_id, LocalDate birthDate) {
 		super();
 		this.name = name;
 		this.typeId = type_id;
@@ -1,6 +1,8 @@
 package com.tecsup.petclinic.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
@@ -17,6 +19,8 @@ import java.util.Set;
  */
 @NoArgsConstructor
 @Entity(name = "types")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "types")
 @Data
 public class PetType {
 
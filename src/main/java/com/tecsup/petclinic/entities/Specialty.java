@@ -1,6 +1,8 @@
 package com.tecsup.petclinic.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
@@ -15,6 +17,8 @@ import java.util.Set;
  */
 @NoArgsConstructor
 @Entity(name = "specialties")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "specialties")
 @Data
 public class Specialty {
 
@@ -25,8 +29,18 @@ public class Specialty {
 	@Column(name = "name")
 	private String name;
 
+	@Column(name = "office")
+	private String office;
+
+	// Opening hours, whole hours of the day : 8 to 18
+	@Column(name = "h_open")
+	private Integer openHour;
+
+	@Column(name = "h_close")
+	private Integer closeHour;
+
 	@ManyToMany(mappedBy = "specialties", fetch = FetchType.LAZY)
 	@ToString.Exclude
-	//@EqualsAndHashCode.Exclude
+	@EqualsAndHashCode.Exclude
 	private Set<Vet> vets;
 }
\ No newline at end of file
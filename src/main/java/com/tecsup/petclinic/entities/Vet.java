@@ -1,6 +1,9 @@
 package com.tecsup.petclinic.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -13,20 +16,32 @@ import java.util.Set;
  */
 @NoArgsConstructor
 @Entity(name = "vets")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vets")
 @Data
 public class Vet {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "vets_id")
+	@TableGenerator(name = "vets_id", table = "id_generators", pkColumnName = "name",
+			valueColumnName = "next_val", pkColumnValue = "vets", allocationSize = 50)
 	private Integer id;
 
+	// Incremented by every update, checked against If-Match
+	@Version
+	@Column(name = "version")
+	private Integer version;
+
 	@Column(name = "first_name")
 	private String firstName;
 
 	@Column(name = "last_name")
 	private String lastName;
 
+	// Lazy loads (export, single vet) initialize up to 50 vets per query
 	@ManyToMany(fetch = FetchType.LAZY)
+	@BatchSize(size = 50)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vet_specialties")
 	@JoinTable(
 			name = "vet_specialties",
 			joinColumns = @JoinColumn(name = "vet_id"),
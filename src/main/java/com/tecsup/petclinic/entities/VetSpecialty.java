@@ -0,0 +1,66 @@
+package com.tecsup.petclinic.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A specialty of a vet, with the columns of the join table of
+ * Vet.specialties. Read only : the join table is written through Vet.
+ *
+ * @author jgomezm
+ *
+ */
+@NoArgsConstructor
+@Entity(name = "vet_specialties")
+@IdClass(VetSpecialty.Key.class)
+@Immutable
+@Data
+public class VetSpecialty {
+
+	@Id
+	@Column(name = "vet_id")
+	private Integer vetId;
+
+	@Id
+	@Column(name = "specialty_id")
+	private Integer specialtyId;
+
+	@Column(name = "certification_date")
+	private LocalDate certificationDate;
+
+	@Column(name = "years_experience")
+	private Integer yearsExperience;
+
+	@Column(name = "is_primary")
+	private Boolean primarySpecialty;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "specialty_id", insertable = false, updatable = false)
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	private Specialty specialty;
+
+	/**
+	 * Primary key : vet and specialty
+	 */
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@Data
+	public static class Key implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Integer vetId;
+
+		private Integer specialtyId;
+	}
+
+}
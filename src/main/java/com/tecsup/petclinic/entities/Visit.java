@@ -2,13 +2,16 @@ package com.tecsup.petclinic.entities;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalTime;
 
 /**
- * 
+ *
  * @author jgomezm
  *
  */
@@ -21,14 +24,29 @@ public class Visit {
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
 
+	@Column(name = "pet_id")
+	private Integer petId;
+
+	@Column(name = "vet_id")
+	private Integer vetId;
+
 	@Column(name = "visit_date")
 	private LocalDate visitDate;
 
+	// Start of the booked slot, null when the visit is not an appointment
+	@Column(name = "visit_time")
+	private LocalTime visitTime;
+
 	@Column(name = "description")
 	private String description;
 
+	@Column(name = "cost")
+	private BigDecimal cost;
+
+	// Read-only side of pet_id, written through petId
 	@ManyToOne(fetch = FetchType.LAZY)
-	@JoinColumn(name = "pet_id")
-	//@ToString.Exclude
+	@JoinColumn(name = "pet_id", insertable = false, updatable = false)
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
 	private Pet pet;
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.tecsup.petclinic.exceptions;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Exception for a connection request refused by the database admission
+ * control, because too many requests are already waiting for a connection.
+ * Answered with 503 Service Unavailable.
+ *
+ * @author jgomezm
+ *
+ */
+public class DatabaseBusyException extends SQLTransientConnectionException {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public DatabaseBusyException(String message) {
+		super(message);
+	}
+
+}
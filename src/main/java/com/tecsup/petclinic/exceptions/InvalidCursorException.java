@@ -0,0 +1,25 @@
+package com.tecsup.petclinic.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for a page cursor that was not returned as next by a previous page.
+ * Answered with 400 Bad Request.
+ *
+ * @author jgomezm
+ *
+ */
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid page cursor")
+public class InvalidCursorException extends RuntimeException {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public InvalidCursorException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.tecsup.petclinic.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for a date that is not a valid yyyy-MM-dd date.
+ * Answered with 400 Bad Request.
+ * 
+ * @author jgomezm
+ *
+ */
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid date, expected yyyy-MM-dd")
+public class InvalidDateException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public InvalidDateException(String message, Throwable cause) {
+		super(message, cause);
+	}
+	
+}
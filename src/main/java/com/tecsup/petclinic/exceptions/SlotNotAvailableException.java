@@ -0,0 +1,26 @@
+package com.tecsup.petclinic.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for an appointment in a slot that is already booked, in the
+ * past or outside the hours of the vet.
+ * Answered with 409 Conflict.
+ *
+ * @author jgomezm
+ *
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "Slot not available, pick one of the free slots")
+public class SlotNotAvailableException extends RuntimeException {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public SlotNotAvailableException(String message) {
+		super(message);
+	}
+
+}
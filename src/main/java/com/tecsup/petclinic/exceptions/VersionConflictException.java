@@ -0,0 +1,26 @@
+package com.tecsup.petclinic.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception for an update or delete whose If-Match version is not the
+ * stored one, because the record was changed in the meantime.
+ * Answered with 412 Precondition Failed.
+ *
+ * @author jgomezm
+ *
+ */
+@ResponseStatus(value = HttpStatus.PRECONDITION_FAILED, reason = "Record was changed, read it again")
+public class VersionConflictException extends RuntimeException {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public VersionConflictException(String message) {
+		super(message);
+	}
+
+}
@@ -3,6 +3,7 @@ package com.tecsup.petclinic.mapper;
 import com.tecsup.petclinic.dtos.OwnerDTO;
 import com.tecsup.petclinic.entities.Owner;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.NullValueMappingStrategy;
 import org.mapstruct.factory.Mappers;
 
@@ -21,6 +22,7 @@ public interface OwnerMapper {
 
 	Owner mapToEntity(OwnerDTO ownerDTO);
 
+	@Mapping(target = "pets", ignore = true)
 	OwnerDTO mapToDto(Owner owner);
 
 	List<OwnerDTO> mapToDtoList(List<Owner> ownerList);
@@ -2,15 +2,15 @@ package com.tecsup.petclinic.mapper;
 
 import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.entities.Pet;
-import lombok.extern.slf4j.Slf4j;
+import com.tecsup.petclinic.exceptions.InvalidDateException;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.NullValueMappingStrategy;
 import org.mapstruct.factory.Mappers;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 
@@ -19,39 +19,41 @@ public interface PetMapper {
 
 	PetMapper INSTANCE = Mappers.getMapper(PetMapper.class);
 
+	// Immutable and thread-safe, shared by every conversion
+	DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+
 	//@Mapping(target = "name", source = "name")
 	@Mapping(source = "birthDate", target = "birthDate")
 	Pet mapToEntity(PetDTO petTO);
 
-    default Date stringToDate(String dateStr) {
-        System.out.println("Converting string to date: " + dateStr);
-
-        if (dateStr == null || dateStr.isEmpty()) {
-            return null;
-        }
-
-        Date date = null;
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        try {
-            date = dateFormat.parse(dateStr);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-        return date;
+	/**
+	 * Parse a yyyy-MM-dd date, an empty value is no date
+	 *
+	 * @param dateStr
+	 * @return
+	 * @throws InvalidDateException
+	 */
+	default LocalDate stringToDate(String dateStr) {
+
+		if (dateStr == null || dateStr.isEmpty())
+			return null;
+
+		try {
+			return LocalDate.parse(dateStr, DATE_FORMAT);
+		} catch (DateTimeParseException e) {
+			throw new InvalidDateException("Invalid date: " + dateStr, e);
+		}
 	}
 
 	@Mapping(source = "birthDate", target = "birthDate")
 	PetDTO mapToDto(Pet pet);
 
-	default String dateToString(Date date) {
+	default String dateToString(LocalDate date) {
 
-		if (date != null ) {
-			SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-			return dateFormat.format(date);
-		} else {
+		if (date == null)
 			return "";
-		}
 
+		return DATE_FORMAT.format(date);
 	}
 
 	List<PetDTO> mapToDtoList(List<Pet> petList);
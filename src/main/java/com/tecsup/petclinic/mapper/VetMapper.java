@@ -1,12 +1,17 @@
 package com.tecsup.petclinic.mapper;
 
 import com.tecsup.petclinic.dtos.VetDTO;
+import com.tecsup.petclinic.entities.Specialty;
 import com.tecsup.petclinic.entities.Vet;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.NullValueMappingStrategy;
 import org.mapstruct.factory.Mappers;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Mapper for Vet entity and DTO
@@ -19,10 +24,22 @@ public interface VetMapper {
 
 	VetMapper INSTANCE = Mappers.getMapper(VetMapper.class);
 
+	@Mapping(target = "specialties", ignore = true)
 	Vet mapToEntity(VetDTO vetDTO);
 
 	VetDTO mapToDto(Vet vet);
 
+	default List<String> specialtyNames(Set<Specialty> specialties) {
+
+		if (specialties == null)
+			return new ArrayList<>();
+
+		return specialties.stream()
+				.map(Specialty::getName)
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
 	List<VetDTO> mapToDtoList(List<Vet> vetList);
 
     List<Vet> mapToEntityList(List<VetDTO> vetDTOList);
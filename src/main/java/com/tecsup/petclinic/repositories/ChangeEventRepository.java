@@ -0,0 +1,54 @@
+package com.tecsup.petclinic.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.tecsup.petclinic.dtos.ChangeEventDTO;
+import com.tecsup.petclinic.entities.ChangeEvent;
+
+/**
+ * Repository for the change outbox
+ *
+ * @author jgomezm
+ *
+ */
+@Repository
+public interface ChangeEventRepository
+	extends JpaRepository<ChangeEvent, Long> {
+
+	// Columns of a change read straight into a ChangeEventDTO
+	String DTO_SELECT = "select new com.tecsup.petclinic.dtos.ChangeEventDTO(e.id, e.seq, e.entityType, e.entityId, "
+			+ "e.operation, e.version, e.changedAt) from change_events e ";
+
+	// Fetch the changes after the given position in the feed, as DTOs (idx_change_events_seq)
+	@Query(DTO_SELECT + "where e.seq > :seq order by e.seq")
+	List<ChangeEventDTO> findBySeqAfter(Long seq, Limit limit);
+
+	// Fetch the committed changes without a position in the feed yet, oldest first
+	@Query("select e from change_events e where e.seq is null order by e.id")
+	List<ChangeEvent> findUnsequenced(Limit limit);
+
+	// Last position given in the feed, 0 when none
+	@Query("select coalesce(max(e.seq), 0) from change_events e")
+	long findLastSeq();
+
+	// Fetch the oldest changes of the feed not sent to the sink yet, as DTOs (idx_change_events_relayed)
+	@Query(DTO_SELECT + "where e.relayed = false and e.seq is not null order by e.seq")
+	List<ChangeEventDTO> findPending(Limit limit);
+
+	// Lock the row of the relay until the end of the transaction : one pass at a time across the instances
+	@Query(value = "select id from change_relay_lock where id = 1 for update", nativeQuery = true)
+	Integer lockRelay();
+
+	// Flag changes as sent to the sink
+	@Modifying
+	@Query("update change_events e set e.relayed = true where e.id in :ids")
+	int markRelayed(Collection<Long> ids);
+
+}
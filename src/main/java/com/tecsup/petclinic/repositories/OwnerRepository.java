@@ -1,10 +1,22 @@
 package com.tecsup.petclinic.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import com.tecsup.petclinic.dtos.CountDTO;
+import com.tecsup.petclinic.dtos.OwnerDTO;
 import com.tecsup.petclinic.entities.Owner;
 
 /**
@@ -17,6 +29,10 @@ import com.tecsup.petclinic.entities.Owner;
 public interface OwnerRepository 
 	extends JpaRepository<Owner, Long> {
 
+	// Columns of an owner read straight into an OwnerDTO, no entity is loaded or managed
+	String DTO_SELECT = "select new com.tecsup.petclinic.dtos.OwnerDTO(o.id, o.firstName, o.lastName, "
+			+ "o.address, o.city, o.telephone, o.version) from owners o ";
+
 	// Fetch owners by first name
 	List<Owner> findByFirstName(String firstName);
 
@@ -26,6 +42,63 @@ public interface OwnerRepository
 	// Fetch owners by city
 	List<Owner> findByCity(String city);
 
+	// Fetch owners whose last name starts with the prefix (uses idx_owners_last_name)
+	List<Owner> findByLastNameStartingWithOrderByLastNameAscIdAsc(String prefix, Limit limit);
+
+	// Fetch an owner by id, as a DTO
+	@Query(DTO_SELECT + "where o.id = :id")
+	Optional<OwnerDTO> findDtoById(Long id);
+
+	// Fetch owners by id, as DTOs
+	@Query(DTO_SELECT + "where o.id in :ids")
+	List<OwnerDTO> findDtoByIdIn(Collection<Long> ids);
+
+	// Fetch owners by first name, as DTOs
+	@Query(DTO_SELECT + "where o.firstName = :firstName")
+	List<OwnerDTO> findDtoByFirstName(String firstName);
+
+	// Count all owners by city
+	@Query("select new com.tecsup.petclinic.dtos.CountDTO(o.city, count(o)) from owners o group by o.city")
+	List<CountDTO> countGroupByCity();
+
+	// Fetch all owners ordered by id, as DTOs
+	@Query(DTO_SELECT + "order by o.id")
+	List<OwnerDTO> findAllDto();
+
+	// Fetch a page of owners after the given id, as DTOs (keyset pagination)
+	@Query(DTO_SELECT + "where o.id > :id order by o.id")
+	List<OwnerDTO> findDtoByIdGreaterThan(Long id, Limit limit);
+
+	// Stream all owners ordered by id as DTOs, fetched in chunks
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query(DTO_SELECT + "order by o.id")
+	Stream<OwnerDTO> streamAllDto();
+
+	// Update an owner in one statement when its version matches (any version when
+	// null), returns the number of updated rows.
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update owners o set o.firstName = :firstName, o.lastName = :lastName, o.address = :address, "
+			+ "o.city = :city, o.telephone = :telephone, o.version = o.version + 1 "
+			+ "where o.id = :id and (:version is null or o.version = :version)")
+	int updateById(Long id, Integer version, String firstName, String lastName, String address, String city, String telephone);
+
+	// Delete a owner in one statement when its version matches (any version when
+	// null), returns the number of deleted rows
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("delete from owners o where o.id = :id and (:version is null or o.version = :version)")
+	int deleteOneById(Long id, Integer version);
+
+	// Read only the version of an owner
+	@Query("select o.version from owners o where o.id = :id")
+	Optional<Integer> findVersionById(Long id);
+
+	// Row count, sum of the ids and sum of the versions of all owners, changes
+	// with any insert, update or delete (ids are never reused, and reserved in
+	// blocks a new id may be lower than the highest one)
+	@Query("select concat(str(count(o)), '.', str(coalesce(sum(o.id), 0)), '.', "
+			+ "str(coalesce(sum(o.version), 0))) from owners o")
+	String findTableVersion();
+
 	@Override
 	List<Owner> findAll();
 
@@ -1,11 +1,24 @@
 package com.tecsup.petclinic.repositories;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import com.tecsup.petclinic.dtos.CountDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.entities.Pet;
 
 /**
@@ -17,6 +30,10 @@ import com.tecsup.petclinic.entities.Pet;
 public interface PetRepository 
 	extends JpaRepository<Pet, Integer> {
 
+	// Columns of a pet read straight into a PetDTO, no entity is loaded or managed
+	String DTO_SELECT = "select new com.tecsup.petclinic.dtos.PetDTO(p.id, p.name, p.typeId, p.ownerId, "
+			+ "coalesce(str(p.birthDate), ''), p.version) from pets p ";
+
 	// Fetch pets by name
 	List<Pet> findByName(String name);
 
@@ -26,7 +43,68 @@ public interface PetRepository
 	// Fetch pets by ownerId
 	List<Pet> findByOwnerId(int ownerId);
 
-	// Fetch pets by Id
+	// Fetch a pet by id, as a DTO
+	@Query(DTO_SELECT + "where p.id = :id")
+	Optional<PetDTO> findDtoById(Integer id);
+
+	// Fetch pets by name, as DTOs
+	@Query(DTO_SELECT + "where p.name = :name")
+	List<PetDTO> findDtoByName(String name);
+
+	// Fetch the ids of the pets of an owner
+	@Query("select p.id from pets p where p.ownerId = :ownerId")
+	List<Integer> findIdByOwnerId(int ownerId);
+
+	// Fetch the pets of an owner ordered by id, as DTOs
+	@Query(DTO_SELECT + "where p.ownerId = :ownerId order by p.id")
+	List<PetDTO> findDtoByOwnerId(int ownerId);
+
+	// Fetch the pets of many owners in one query, ordered by owner and id, as DTOs
+	@Query(DTO_SELECT + "where p.ownerId in :ownerIds order by p.ownerId, p.id")
+	List<PetDTO> findDtoByOwnerIdIn(Collection<Integer> ownerIds);
+
+	// Fetch all pets ordered by id, as DTOs
+	@Query(DTO_SELECT + "order by p.id")
+	List<PetDTO> findAllDto();
+
+	// Fetch a page of pets after the given id, as DTOs (keyset pagination)
+	@Query(DTO_SELECT + "where p.id > :id order by p.id")
+	List<PetDTO> findDtoByIdGreaterThan(Integer id, Limit limit);
+
+	// Stream all pets ordered by id as DTOs, fetched in chunks
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query(DTO_SELECT + "order by p.id")
+	Stream<PetDTO> streamAllDto();
+
+	// Update a pet in one statement when its version matches (any version when
+	// null), returns the number of updated rows.
+	// A null birth date keeps the stored one.
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update pets p set p.name = :name, p.typeId = :typeId, p.ownerId = :ownerId, "
+			+ "p.birthDate = coalesce(:birthDate, p.birthDate), p.version = p.version + 1 "
+			+ "where p.id = :id and (:version is null or p.version = :version)")
+	int updateById(Integer id, Integer version, String name, int typeId, int ownerId, LocalDate birthDate);
+
+	// Delete a pet in one statement when its version matches (any version when
+	// null), returns the number of deleted rows
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("delete from pets p where p.id = :id and (:version is null or p.version = :version)")
+	int deleteOneById(Integer id, Integer version);
+
+	// Count all pets by type
+	@Query("select new com.tecsup.petclinic.dtos.CountDTO(p.typeId, count(p)) from pets p group by p.typeId")
+	List<CountDTO> countGroupByTypeId();
+
+	// Read only the version of a pet
+	@Query("select p.version from pets p where p.id = :id")
+	Optional<Integer> findVersionById(Integer id);
+
+	// Row count, sum of the ids and sum of the versions of all pets, changes
+	// with any insert, update or delete (ids are never reused, and reserved in
+	// blocks a new id may be lower than the highest one)
+	@Query("select concat(str(count(p)), '.', str(coalesce(sum(p.id), 0)), '.', "
+			+ "str(coalesce(sum(p.version), 0))) from pets p")
+	String findTableVersion();
 
 	@Override
 	List<Pet> findAll();
@@ -2,6 +2,7 @@ package com.tecsup.petclinic.repositories;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -20,6 +21,9 @@ public interface SpecialtyRepository
 	// Fetch specialties by name
 	List<Specialty> findByName(String name);
 
+	// Fetch a page of specialties after the given id (keyset pagination)
+	List<Specialty> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
 	@Override
 	List<Specialty> findAll();
 
@@ -1,10 +1,22 @@
 package com.tecsup.petclinic.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import com.tecsup.petclinic.dtos.OpeningHoursDTO;
 import com.tecsup.petclinic.entities.Vet;
 
 /**
@@ -17,13 +29,74 @@ import com.tecsup.petclinic.entities.Vet;
 public interface VetRepository 
 	extends JpaRepository<Vet, Integer> {
 
-	// Fetch vets by first name
+	// Fetch vets by first name, with their specialties
+	@EntityGraph(attributePaths = "specialties")
 	List<Vet> findByFirstName(String firstName);
 
-	// Fetch vets by last name
+	// Fetch vets by last name, with their specialties
+	@EntityGraph(attributePaths = "specialties")
 	List<Vet> findByLastName(String lastName);
 
+	// Fetch the ids of a page of vets after the given id (keyset pagination).
+	// The limit must not be applied to a fetch join, so pages load in two steps.
+	@Query("select v.id from vets v where v.id > :id order by v.id")
+	List<Integer> findIdsAfter(Integer id, Limit limit);
+
+	// Fetch the vets of a page, with their specialties
+	@EntityGraph(attributePaths = "specialties")
+	List<Vet> findByIdInOrderByIdAsc(Collection<Integer> ids);
+
+	// Stream all vets ordered by id, read-only and fetched in chunks
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("select v from vets v order by v.id")
+	Stream<Vet> streamAll();
+
+	// Update a vet in one statement when its version matches (any version when
+	// null), returns the number of updated rows.
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update vets v set v.firstName = :firstName, v.lastName = :lastName, v.version = v.version + 1 "
+			+ "where v.id = :id and (:version is null or v.version = :version)")
+	int updateById(Integer id, Integer version, String firstName, String lastName);
+
+	// Fetch the ids of the vets of a specialty
+	@Query("select vs.vetId from vet_specialties vs where vs.specialtyId = :specialtyId")
+	List<Integer> findIdsBySpecialtyId(Integer specialtyId);
+
+	// Increment the version of the given vets, whose representation (their
+	// specialties) changes with a specialty, returns the number of updated rows
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("update vets v set v.version = v.version + 1 where v.id in :ids")
+	int incrementVersionByIdIn(Collection<Integer> ids);
+
+	// Delete a vet in one statement when its version matches (any version when
+	// null), returns the number of deleted rows
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("delete from vets v where v.id = :id and (:version is null or v.version = :version)")
+	int deleteOneById(Integer id, Integer version);
+
+	// Fetch the opening hours of the specialties of a vet, the primary one
+	// first, then the most experienced
+	@Query("select new com.tecsup.petclinic.dtos.OpeningHoursDTO(s.id, s.office, s.openHour, s.closeHour, "
+			+ "vs.primarySpecialty) from vet_specialties vs join vs.specialty s where vs.vetId = :vetId "
+			+ "order by vs.primarySpecialty desc, vs.yearsExperience desc, s.id")
+	List<OpeningHoursDTO> findOpeningHours(Integer vetId);
+
+	// Read only the version of a vet
+	@Query("select v.version from vets v where v.id = :id")
+	Optional<Integer> findVersionById(Integer id);
+
+	// Row count, sum of the ids and sum of the versions of all vets, changes
+	// with any insert, update or delete (ids are never reused, and reserved in
+	// blocks a new id may be lower than the highest one)
+	@Query("select concat(str(count(v)), '.', str(coalesce(sum(v.id), 0)), '.', "
+			+ "str(coalesce(sum(v.version), 0))) from vets v")
+	String findTableVersion();
+
 	@Override
+	@EntityGraph(attributePaths = "specialties")
 	List<Vet> findAll();
 
 }
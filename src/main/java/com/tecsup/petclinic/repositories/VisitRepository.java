@@ -0,0 +1,46 @@
+package com.tecsup.petclinic.repositories;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.tecsup.petclinic.dtos.CountDTO;
+import com.tecsup.petclinic.entities.Visit;
+
+/**
+ * Repository for Visit entity
+ *
+ * @author jgomezm
+ *
+ */
+@Repository
+public interface VisitRepository
+	extends JpaRepository<Visit, Long> {
+
+	// Fetch a page of visits of a pet after the given id (idx_visits_pet_id)
+	List<Visit> findByPetIdAndIdGreaterThanOrderByIdAsc(Integer petId, Long id, Limit limit);
+
+	// Fetch a page of visits of a vet after the given id (idx_visits_vet_id)
+	List<Visit> findByVetIdAndIdGreaterThanOrderByIdAsc(Integer vetId, Long id, Limit limit);
+
+	// Fetch a page of visits between two dates after the given (date, id) cursor (idx_visits_date)
+	@Query("select v from visits v where v.visitDate >= :from and v.visitDate <= :to "
+			+ "and (v.visitDate > :afterDate or (v.visitDate = :afterDate and v.id > :afterId)) "
+			+ "order by v.visitDate, v.id")
+	List<Visit> findByVisitDateBetweenAfter(LocalDate from, LocalDate to, LocalDate afterDate, Long afterId,
+			Limit limit);
+
+	// Count all visits and sum their cost, by vet
+	@Query("select new com.tecsup.petclinic.dtos.CountDTO(v.vetId, count(v), sum(v.cost)) from visits v "
+			+ "group by v.vetId")
+	List<CountDTO> countGroupByVetId();
+
+	// Fetch the appointments of a vet from a date on (uk_visits_vet_slot)
+	@Query("select v from visits v where v.vetId = :vetId and v.visitDate >= :from and v.visitTime is not null")
+	List<Visit> findAppointmentsFrom(Integer vetId, LocalDate from);
+
+}
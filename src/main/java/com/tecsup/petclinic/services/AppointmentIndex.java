@@ -0,0 +1,209 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.repositories.VisitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory agenda of the vets : the booked appointments of each vet as
+ * intervals sorted by start, so checking or booking a slot is a lookup of
+ * its neighbours, O(log n).
+ *
+ * The agenda of a vet is read from the table the first time it is needed,
+ * from today on, and again agenda-ttl-ms later. In between it only holds
+ * the bookings made through this instance : the unique key of the visits
+ * table keeps the others out, then {@link #evict(int)} makes the next
+ * lookup read the agenda again. The appointments of deleted pets (their
+ * visits go with them) are released once the delete commits.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class AppointmentIndex {
+
+	private final VisitRepository visitRepository;
+
+	private final Duration slotLength;
+
+	// Read again after that, for the bookings made through other instances
+	private final long ttlNanos;
+
+	// Agendas by vet id
+	private final Map<Integer, Agenda> agendas = new ConcurrentHashMap<>();
+
+	public AppointmentIndex(VisitRepository visitRepository,
+			@Value("${petclinic.appointments.slot-minutes:30}") int slotMinutes,
+			@Value("${petclinic.appointments.agenda-ttl-ms:60000}") long ttlMillis) {
+
+		// Slots of every specialty start on the same times of the hour
+		if (slotMinutes <= 0 || 60 % slotMinutes != 0)
+			throw new IllegalArgumentException("petclinic.appointments.slot-minutes must divide 60: " + slotMinutes);
+
+		this.visitRepository = visitRepository;
+		this.slotLength = Duration.ofMinutes(slotMinutes);
+		this.ttlNanos = Duration.ofMillis(ttlMillis).toNanos();
+	}
+
+	/**
+	 * Length of an appointment
+	 *
+	 * @return
+	 */
+	public Duration getSlotLength() {
+		return slotLength;
+	}
+
+	/**
+	 * Whether the slot starting at the given time is free
+	 *
+	 * @param vetId
+	 * @param start
+	 * @return
+	 */
+	public boolean isFree(int vetId, LocalDateTime start) {
+		return agenda(vetId).isFree(start, start.plus(slotLength));
+	}
+
+	/**
+	 * Book the slot starting at the given time for a pet, if it is free
+	 *
+	 * @param vetId
+	 * @param start
+	 * @param petId
+	 * @return false when it is already booked
+	 */
+	public boolean reserve(int vetId, LocalDateTime start, int petId) {
+		return agenda(vetId).reserve(start, new Booking(start.plus(slotLength), petId));
+	}
+
+	/**
+	 * Free a slot reserved by a booking that could not be saved
+	 *
+	 * @param vetId
+	 * @param start
+	 */
+	public void release(int vetId, LocalDateTime start) {
+		agenda(vetId).release(start);
+	}
+
+	/**
+	 * Forget the agenda of a vet, read again at the next lookup
+	 *
+	 * @param vetId
+	 */
+	public void evict(int vetId) {
+		agendas.remove(vetId);
+	}
+
+	/**
+	 * Free the appointments of deleted pets, once the current transaction
+	 * commits
+	 *
+	 * @param petIds
+	 */
+	public void releasePets(Collection<Integer> petIds) {
+		afterCommit(() -> agendas.values().forEach(agenda -> agenda.releasePets(petIds)));
+	}
+
+	private Agenda agenda(int vetId) {
+
+		Agenda agenda = agendas.computeIfAbsent(vetId, this::load);
+		if (System.nanoTime() - agenda.loadedAt > ttlNanos) {
+			agendas.remove(vetId, agenda);
+			agenda = agendas.computeIfAbsent(vetId, this::load);
+		}
+
+		return agenda;
+	}
+
+	private Agenda load(int vetId) {
+
+		Agenda agenda = new Agenda();
+
+		for (Visit visit : visitRepository.findAppointmentsFrom(vetId, LocalDate.now())) {
+			LocalDateTime start = visit.getVisitDate().atTime(visit.getVisitTime());
+			agenda.booked.put(start, new Booking(start.plus(slotLength), visit.getPetId()));
+		}
+
+		log.debug("Agenda of vet {} loaded, {} appointments", vetId, agenda.booked.size());
+
+		return agenda;
+	}
+
+	private static void afterCommit(Runnable change) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					change.run();
+				}
+			});
+		} else {
+			change.run();
+		}
+	}
+
+	/**
+	 * End of a booked slot and the pet it is booked for
+	 */
+	private record Booking(LocalDateTime end, Integer petId) {
+	}
+
+	/**
+	 * Booked intervals of one vet : start -> booking, never overlapping
+	 */
+	private static final class Agenda {
+
+		private final long loadedAt = System.nanoTime();
+
+		private final NavigableMap<LocalDateTime, Booking> booked = new TreeMap<>();
+
+		synchronized boolean isFree(LocalDateTime start, LocalDateTime end) {
+
+			// The booking starting before, or at, must end by the start
+			Map.Entry<LocalDateTime, Booking> before = booked.floorEntry(start);
+			if (before != null && before.getValue().end().isAfter(start))
+				return false;
+
+			// and the next one must start from the end on
+			LocalDateTime next = booked.higherKey(start);
+			return next == null || !next.isBefore(end);
+		}
+
+		synchronized boolean reserve(LocalDateTime start, Booking booking) {
+
+			// Past days are not booked anymore
+			booked.headMap(LocalDate.now().atStartOfDay()).clear();
+
+			if (!isFree(start, booking.end()))
+				return false;
+
+			booked.put(start, booking);
+			return true;
+		}
+
+		synchronized void release(LocalDateTime start) {
+			booked.remove(start);
+		}
+
+		synchronized void releasePets(Collection<Integer> petIds) {
+			booked.values().removeIf(booking -> petIds.contains(booking.petId()));
+		}
+	}
+
+}
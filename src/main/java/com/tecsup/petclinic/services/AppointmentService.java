@@ -0,0 +1,45 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.SlotDTO;
+import com.tecsup.petclinic.dtos.VisitDTO;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.exceptions.SlotNotAvailableException;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Service interface for the appointments with the vets : visits booked
+ * in a slot of the opening hours of the vet specialties
+ *
+ * @author jgomezm
+ *
+ */
+public interface AppointmentService {
+
+	/**
+	 * Find the free slots of a vet on a day
+	 *
+	 * @param vetId
+	 * @param date
+	 * @param specialtyId only the slots of this specialty, null for all
+	 * @return ordered by start
+	 * @throws VetNotFoundException
+	 */
+	List<SlotDTO> findSlots(Integer vetId, LocalDate date, Integer specialtyId) throws VetNotFoundException;
+
+	/**
+	 * Book a visit with a vet in one of its free slots, given by the visit
+	 * date and time
+	 *
+	 * @param vetId
+	 * @param visitDTO
+	 * @return the booked visit
+	 * @throws PetNotFoundException
+	 * @throws VetNotFoundException
+	 * @throws SlotNotAvailableException
+	 */
+	VisitDTO book(Integer vetId, VisitDTO visitDTO) throws PetNotFoundException, VetNotFoundException;
+
+}
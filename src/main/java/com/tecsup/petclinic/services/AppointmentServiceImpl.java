@@ -0,0 +1,183 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.OpeningHoursDTO;
+import com.tecsup.petclinic.dtos.SlotDTO;
+import com.tecsup.petclinic.dtos.VisitDTO;
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.exceptions.SlotNotAvailableException;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.mapper.VisitMapper;
+import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.repositories.VetRepository;
+import com.tecsup.petclinic.repositories.VisitRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service implementation for the appointments. The slots of a vet are cut
+ * from the opening hours of its specialties (specialties.h_open / h_close),
+ * where two specialties overlap the slot goes to the primary one.
+ *
+ * A booking first reserves the slot in the {@link AppointmentIndex}, which
+ * turns away the concurrent bookings of this instance, then inserts the
+ * visit : the unique key on (vet_id, visit_date, visit_time) turns away
+ * those of the other instances. No lock is held on the table.
+ *
+ * @author jgomezm
+ *
+ */
+@Service
+@Timed("petclinic.service")
+@Slf4j
+public class AppointmentServiceImpl implements AppointmentService {
+
+	VetRepository vetRepository;
+	PetRepository petRepository;
+	VisitRepository visitRepository;
+	VisitMapper visitMapper;
+	AppointmentIndex appointmentIndex;
+	ClinicStats clinicStats;
+
+	public AppointmentServiceImpl(VetRepository vetRepository, PetRepository petRepository,
+			VisitRepository visitRepository, VisitMapper visitMapper, AppointmentIndex appointmentIndex,
+			ClinicStats clinicStats) {
+		this.vetRepository = vetRepository;
+		this.petRepository = petRepository;
+		this.visitRepository = visitRepository;
+		this.visitMapper = visitMapper;
+		this.appointmentIndex = appointmentIndex;
+		this.clinicStats = clinicStats;
+	}
+
+	/**
+	 * Find the free slots of a vet on a day, none in the past
+	 *
+	 * @param vetId
+	 * @param date
+	 * @param specialtyId only the slots of this specialty, null for all
+	 * @return ordered by start
+	 * @throws VetNotFoundException
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<SlotDTO> findSlots(Integer vetId, LocalDate date, Integer specialtyId) throws VetNotFoundException {
+
+		LocalDateTime now = LocalDateTime.now();
+		Map<LocalTime, SlotDTO> slots = new TreeMap<>();
+
+		for (OpeningHoursDTO hours : findOpeningHours(vetId)) {
+
+			if (specialtyId != null && !specialtyId.equals(hours.getSpecialtyId()))
+				continue;
+
+			for (LocalTime start : slotStarts(hours)) {
+				LocalDateTime at = date.atTime(start);
+				if (slots.containsKey(start) || !at.isAfter(now) || !appointmentIndex.isFree(vetId, at))
+					continue;
+
+				slots.put(start, SlotDTO.builder()
+						.specialtyId(hours.getSpecialtyId())
+						.office(hours.getOffice())
+						.date(date)
+						.start(start)
+						.end(start.plus(appointmentIndex.getSlotLength()))
+						.build());
+			}
+		}
+
+		return new ArrayList<>(slots.values());
+	}
+
+	/**
+	 * Book a visit with a vet in one of its free slots. Not in a transaction :
+	 * the insert is committed on its own, so a duplicate slot is known here.
+	 *
+	 * @param vetId
+	 * @param visitDTO
+	 * @return the booked visit
+	 * @throws PetNotFoundException
+	 * @throws VetNotFoundException
+	 * @throws SlotNotAvailableException
+	 */
+	@Override
+	public VisitDTO book(Integer vetId, VisitDTO visitDTO) throws PetNotFoundException, VetNotFoundException {
+
+		if (visitDTO.getPetId() == null || !petRepository.existsById(visitDTO.getPetId()))
+			throw new PetNotFoundException("Record not found...!");
+
+		List<OpeningHoursDTO> openingHours = findOpeningHours(vetId);
+
+		LocalDate date = visitDTO.getVisitDate();
+		LocalTime time = visitDTO.getVisitTime();
+		if (date == null || time == null)
+			throw new SlotNotAvailableException("Visit date and time are required");
+
+		LocalDateTime start = date.atTime(time);
+		if (!start.isAfter(LocalDateTime.now()))
+			throw new SlotNotAvailableException("Slot " + start + " is in the past");
+
+		if (openingHours.stream().noneMatch(hours -> slotStarts(hours).contains(time)))
+			throw new SlotNotAvailableException("No slot of vet " + vetId + " starts at " + start);
+
+		if (!appointmentIndex.reserve(vetId, start, visitDTO.getPetId()))
+			throw new SlotNotAvailableException("Slot " + start + " of vet " + vetId + " is booked");
+
+		Visit visit = visitMapper.mapToEntity(visitDTO);
+		visit.setId(null);
+		visit.setVetId(vetId);
+
+		try {
+			visit = visitRepository.saveAndFlush(visit);
+		} catch (DataIntegrityViolationException e) {
+			// Booked through another instance : read the agenda again
+			appointmentIndex.evict(vetId);
+			throw new SlotNotAvailableException("Slot " + start + " of vet " + vetId + " is booked");
+		} catch (RuntimeException e) {
+			appointmentIndex.release(vetId, start);
+			throw e;
+		}
+
+		clinicStats.apply(new ClinicStats.Delta().visit(vetId, 1, visit.getCost()));
+
+		return visitMapper.mapToDto(visit);
+	}
+
+	private List<OpeningHoursDTO> findOpeningHours(Integer vetId) throws VetNotFoundException {
+
+		List<OpeningHoursDTO> openingHours = vetRepository.findOpeningHours(vetId);
+
+		// No hours : tell a vet without specialties from a missing one
+		if (openingHours.isEmpty() && !vetRepository.existsById(vetId))
+			throw new VetNotFoundException("Record not found...!");
+
+		return openingHours;
+	}
+
+	// Starts of the slots fitting in the opening hours
+	private List<LocalTime> slotStarts(OpeningHoursDTO hours) {
+
+		List<LocalTime> starts = new ArrayList<>();
+
+		if (hours.getOpenHour() == null || hours.getCloseHour() == null)
+			return starts;
+
+		int slotMinutes = (int) appointmentIndex.getSlotLength().toMinutes();
+		for (int minute = hours.getOpenHour() * 60; minute + slotMinutes <= hours.getCloseHour() * 60; minute += slotMinutes)
+			starts.add(LocalTime.of(minute / 60, minute % 60));
+
+		return starts;
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.tecsup.petclinic.services;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Persists large lists of new entities with JDBC statement batching.
+ *
+ * The list is split in chunks, each one committed in its own transaction,
+ * and the persistence context is flushed and cleared every JDBC batch so
+ * memory does not grow with the size of the request. A companion entity,
+ * such as the outbox event of each one, commits in the same chunk.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class BatchWriter {
+
+	private final EntityManager entityManager;
+
+	private final TransactionTemplate transactionTemplate;
+
+	// Inserts sent to the database in one JDBC batch
+	private final int batchSize;
+
+	// Inserts committed in one transaction
+	private final int chunkSize;
+
+	public BatchWriter(EntityManager entityManager, PlatformTransactionManager transactionManager,
+			@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize,
+			@Value("${petclinic.batch.chunk-size:1000}") int chunkSize) {
+		this.entityManager = entityManager;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = Math.max(batchSize, 1);
+		this.chunkSize = Math.max(chunkSize, this.batchSize);
+	}
+
+	/**
+	 * Insert all the entities and return their generated ids, in the same
+	 * order. Chunks already committed stay committed if a later one fails.
+	 *
+	 * @param entities new entities, without id
+	 * @param id       reads the generated id of an entity
+	 * @return
+	 */
+	public <T, K> List<K> persistAll(List<T> entities, Function<T, K> id) {
+		return persistAll(entities, id, entity -> null);
+	}
+
+	/**
+	 * Insert all the entities, each one with its companion in the same
+	 * transaction, and return their generated ids, in the same order.
+	 *
+	 * @param entities  new entities, without id
+	 * @param id        reads the generated id of an entity
+	 * @param companion new entity to insert with an entity once it has its id, or null
+	 * @return
+	 */
+	public <T, K> List<K> persistAll(List<T> entities, Function<T, K> id, Function<T, ?> companion) {
+
+		List<K> ids = new ArrayList<>(entities.size());
+
+		for (int from = 0; from < entities.size(); from += chunkSize) {
+			List<T> chunk = entities.subList(from, Math.min(from + chunkSize, entities.size()));
+			ids.addAll(transactionTemplate.execute(status -> persistChunk(chunk, id, companion)));
+		}
+
+		log.debug("Inserted {} records in chunks of {}", ids.size(), chunkSize);
+		return ids;
+	}
+
+	private <T, K> List<K> persistChunk(List<T> chunk, Function<T, K> id, Function<T, ?> companion) {
+
+		List<K> ids = new ArrayList<>(chunk.size());
+
+		for (int i = 0; i < chunk.size(); i++) {
+			T entity = chunk.get(i);
+			entityManager.persist(entity);
+			ids.add(id.apply(entity));
+			Object other = companion.apply(entity);
+			if (other != null)
+				entityManager.persist(other);
+			if ((i + 1) % batchSize == 0)
+				flushBatch();
+		}
+		flushBatch();
+
+		return ids;
+	}
+
+	// Both get their ids from table generators, the inserts of each kind are
+	// grouped into JDBC batches at the flush (order_inserts)
+	private void flushBatch() {
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+}
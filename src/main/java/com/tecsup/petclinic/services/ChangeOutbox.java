@@ -0,0 +1,56 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.entities.ChangeEvent;
+import com.tecsup.petclinic.entities.ChangeEvent.Kind;
+import com.tecsup.petclinic.entities.ChangeEvent.Operation;
+import com.tecsup.petclinic.repositories.ChangeEventRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+/**
+ * Writes the changes of the services to the change_events outbox, in the
+ * transaction of the change : a rolled back change leaves no event and a
+ * committed one always has its event. They are sent on by
+ * {@link ChangeRelay} and read by the /changes feed.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+public class ChangeOutbox {
+
+	private final ChangeEventRepository changeEventRepository;
+
+	public ChangeOutbox(ChangeEventRepository changeEventRepository) {
+		this.changeEventRepository = changeEventRepository;
+	}
+
+	/**
+	 * Record a change, to call after the write succeeded
+	 *
+	 * @param kind
+	 * @param id        id of the changed entity
+	 * @param operation
+	 * @param version   version after the change, null when deleted or unversioned
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void record(Kind kind, Number id, Operation operation, Integer version) {
+		changeEventRepository.save(new ChangeEvent(kind, id, operation, version));
+	}
+
+	/**
+	 * Record the same change of many entities, without versions
+	 *
+	 * @param kind
+	 * @param ids
+	 * @param operation
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void recordAll(Kind kind, Collection<? extends Number> ids, Operation operation) {
+		changeEventRepository.saveAll(ids.stream().map(id -> new ChangeEvent(kind, id, operation, null)).toList());
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.ChangeEventDTO;
+import com.tecsup.petclinic.entities.ChangeEvent;
+import com.tecsup.petclinic.repositories.ChangeEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Every relay-ms, off the request threads, gives the committed changes of
+ * the outbox their position in the /changes feed (seq), then sends them to
+ * the {@link ChangeSink} in batches of batch-size ordered by seq.
+ *
+ * The changes are numbered by this relay only, in the order their commits
+ * make them visible : a change committed after a higher id was numbered
+ * still comes after it. Every batch is numbered, or read, sent and marked,
+ * holding the lock row of change_relay_lock, so with several instances
+ * one pass runs at a time and the others wait for it. A batch is marked
+ * sent once the sink has it : after a failure it is sent again (at least
+ * once). Without a sink (the default) the changes are only read from the
+ * /changes feed.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class ChangeRelay {
+
+	private final ChangeEventRepository changeEventRepository;
+
+	private final ChangeSink sink;
+
+	// Read-write : the pending changes are read from the primary, not a lagging replica
+	private final TransactionTemplate transactionTemplate;
+
+	private final int batchSize;
+
+	public ChangeRelay(ChangeEventRepository changeEventRepository, ObjectProvider<ChangeSink> sink,
+			PlatformTransactionManager transactionManager,
+			@Value("${petclinic.changes.batch-size:100}") int batchSize) {
+		this.changeEventRepository = changeEventRepository;
+		this.sink = sink.getIfAvailable();
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = Math.max(batchSize, 1);
+	}
+
+	/**
+	 * Number all the committed changes, then send the pending ones, batch
+	 * by batch
+	 *
+	 * @return number of changes sent
+	 */
+	@Scheduled(fixedDelayString = "${petclinic.changes.relay-ms:1000}")
+	public synchronized int relay() {
+
+		sequence();
+
+		if (sink == null)
+			return 0;
+
+		int sent = 0;
+		int count;
+
+		do {
+			try {
+				count = transactionTemplate.execute(status -> {
+					changeEventRepository.lockRelay();
+					List<ChangeEventDTO> batch = changeEventRepository.findPending(Limit.of(batchSize));
+					if (batch.isEmpty())
+						return 0;
+					try {
+						sink.publish(batch);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					changeEventRepository.markRelayed(batch.stream().map(ChangeEventDTO::getId).toList());
+					return batch.size();
+				});
+			} catch (RuntimeException e) {
+				// Rolled back : the batch stays pending
+				log.warn("Change relay failed, the pending changes are sent again on the next pass", e);
+				break;
+			}
+			sent += count;
+
+		} while (count == batchSize);
+
+		if (sent > 0)
+			log.debug("Relayed {} changes", sent);
+
+		return sent;
+	}
+
+	/**
+	 * Give the committed changes without one their position in the feed,
+	 * after the last one given, batch by batch
+	 *
+	 * @return number of changes numbered
+	 */
+	public synchronized int sequence() {
+
+		int numbered = 0;
+		int count;
+
+		do {
+			count = transactionTemplate.execute(status -> {
+				changeEventRepository.lockRelay();
+				List<ChangeEvent> events = changeEventRepository.findUnsequenced(Limit.of(batchSize));
+				long seq = changeEventRepository.findLastSeq();
+				for (ChangeEvent event : events)
+					event.setSeq(++seq);
+				return events.size();
+			});
+			numbered += count;
+		} while (count == batchSize);
+
+		return numbered;
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.ChangeFeedDTO;
+
+/**
+ * 
+ * @author jgomezm
+ *
+ */
+public interface ChangeService {
+
+	/**
+	 * Changes after the given cursor, ordered by seq
+	 *
+	 * @param since next of the previous page, null for all the changes
+	 * @param size
+	 * @return
+	 */
+	public ChangeFeedDTO findChanges(Long since, Integer size);
+
+}
@@ -0,0 +1,61 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.ChangeEventDTO;
+import com.tecsup.petclinic.dtos.ChangeFeedDTO;
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
+import com.tecsup.petclinic.repositories.ChangeEventRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * The /changes feed, read from the outbox by seq.
+ *
+ * Ids are taken at the insert but seen at the commit, so a change may
+ * appear after a higher id was already read. The seq is given after the
+ * commit by {@link ChangeRelay}, in the order the changes become visible :
+ * a cursor never skips one. A change shows once the relay numbered it,
+ * within relay-ms.
+ *
+ * @author jgomezm
+ *
+ */
+@Service
+@Timed("petclinic.service")
+@Slf4j
+public class ChangeServiceImpl implements ChangeService {
+
+	ChangeEventRepository changeEventRepository;
+
+	public ChangeServiceImpl(ChangeEventRepository changeEventRepository) {
+		this.changeEventRepository = changeEventRepository;
+	}
+
+	/**
+	 * Changes after the given cursor, ordered by seq
+	 *
+	 * @param since next of the previous page, null for all the changes
+	 * @param size
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public ChangeFeedDTO findChanges(Long since, Integer size) {
+
+		int pageSize = KeysetPageDTO.boundedSize(size);
+		long after = since == null ? 0 : since;
+
+		List<ChangeEventDTO> rows = changeEventRepository.findBySeqAfter(after, Limit.of(pageSize + 1));
+
+		boolean more = rows.size() > pageSize;
+		List<ChangeEventDTO> changes = more ? rows.subList(0, pageSize) : rows;
+		long next = changes.isEmpty() ? after : changes.get(changes.size() - 1).getSeq();
+
+		return new ChangeFeedDTO(changes, next, more);
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.ChangeEventDTO;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the changes sent by {@link ChangeRelay}, chosen with
+ * petclinic.changes.sink. A batch may be published again when marking it
+ * sent fails, consumers tell the repeated ones by their id.
+ *
+ * @author jgomezm
+ *
+ */
+public interface ChangeSink {
+
+	/**
+	 * Publish a batch of changes, ordered by seq. Returns once they are
+	 * stored : the batch is then marked sent.
+	 *
+	 * @param changes
+	 * @throws IOException the batch is retried on the next pass
+	 */
+	void publish(List<ChangeEventDTO> changes) throws IOException;
+
+}
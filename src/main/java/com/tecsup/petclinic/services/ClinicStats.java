@@ -0,0 +1,359 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.StatsDTO;
+import com.tecsup.petclinic.repositories.OwnerRepository;
+import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.repositories.VisitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Counters of the clinic for the dashboards (/stats) : pets by type, owners
+ * by city, visits and revenue by vet, and their totals. Reading them costs
+ * no query.
+ *
+ * The services hand a {@link Delta} of each create, added after the commit.
+ * The updates and deletes are not read first to learn what they change
+ * (the old type or city, the rows deleted in cascade) : they ask for a
+ * {@link #recount()}, done off the request thread within
+ * <code>recount-delay-ms</code> of the commit, once for all the changes of
+ * that time. The counters are also read from the tables at startup and
+ * every <code>reconcile-ms</code>, which corrects the changes made outside
+ * the services. The deltas committed while the tables are read are added
+ * to the new counters too : the read is one snapshot, taken first (MySQL).
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class ClinicStats {
+
+	// Key of the visits without a vet and of the owners without a city, in
+	// the totals only
+	private static final Integer NO_VET = 0;
+
+	private static final String NO_CITY = "";
+
+	private final PetRepository petRepository;
+
+	private final OwnerRepository ownerRepository;
+
+	private final VisitRepository visitRepository;
+
+	// Read-write : counted on the primary, a replica may be behind. One
+	// snapshot for the three tables with REPEATABLE READ, the MySQL default
+	private final TransactionTemplate transactionTemplate;
+
+	private final TaskScheduler taskScheduler;
+
+	private final long recountDelayMillis;
+
+	// A recount is scheduled and not started yet
+	private final AtomicBoolean recountPending = new AtomicBoolean();
+
+	// Shared by the deltas, exclusive to swap the counters
+	private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+	private volatile Counters counters = new Counters(null);
+
+	// Deltas applied while a reconcile reads the tables, null otherwise
+	private Queue<Delta> replay;
+
+	public ClinicStats(PetRepository petRepository, OwnerRepository ownerRepository,
+			VisitRepository visitRepository, PlatformTransactionManager transactionManager,
+			TaskScheduler taskScheduler, @Value("${petclinic.stats.recount-delay-ms:1000}") long recountDelayMillis) {
+		this.petRepository = petRepository;
+		this.ownerRepository = ownerRepository;
+		this.visitRepository = visitRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.taskScheduler = taskScheduler;
+		this.recountDelayMillis = recountDelayMillis;
+	}
+
+	/**
+	 * Count everything again with GROUP BY queries, on the primary : a
+	 * replica may be behind
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${petclinic.stats.reconcile-ms:300000}",
+			initialDelayString = "${petclinic.stats.reconcile-ms:300000}")
+	public void reconcile() {
+		reconcile(false);
+	}
+
+	private synchronized void reconcile(boolean recount) {
+
+		long start = System.nanoTime();
+
+		// Committed after the snapshot of the read, they are not in fresh
+		Queue<Delta> committed = new ConcurrentLinkedQueue<>();
+		swap(() -> replay = committed);
+
+		Counters fresh;
+		try {
+			fresh = transactionTemplate.execute(status -> count());
+		} catch (RuntimeException e) {
+			swap(() -> replay = null);
+			throw e;
+		}
+
+		Counters previous = counters;
+		swap(() -> {
+			committed.forEach(fresh::add);
+			counters = fresh;
+			replay = null;
+		});
+
+		// Changes the deltas missed, or made while counting. The updates and
+		// deletes are only counted by a recount
+		if (!recount && !recountPending.get() && previous.reconciledAt != null
+				&& !previous.snapshot(null).equals(fresh.snapshot(null)))
+			log.info("Clinic stats reconciled : counters had drifted from the tables");
+
+		log.debug("Clinic stats reconciled in {} ms", (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Count everything again, off the request thread, once the current
+	 * transaction commits : for the changes whose delta is only known by
+	 * reading (updates, deletes and the rows deleted with them)
+	 */
+	public void recount() {
+		afterCommit(() -> {
+			if (recountPending.compareAndSet(false, true))
+				taskScheduler.schedule(() -> {
+					recountPending.set(false);
+					reconcile(true);
+				}, Instant.now().plusMillis(recountDelayMillis));
+		});
+	}
+
+	/**
+	 * Current counters
+	 *
+	 * @return
+	 */
+	public StatsDTO snapshot() {
+		Counters current = counters;
+		return current.snapshot(current.reconciledAt);
+	}
+
+	/**
+	 * Add a change, once the current transaction commits
+	 *
+	 * @param delta
+	 */
+	public void apply(Delta delta) {
+		afterCommit(() -> {
+			swapLock.readLock().lock();
+			try {
+				counters.add(delta);
+				if (replay != null)
+					replay.add(delta);
+			} finally {
+				swapLock.readLock().unlock();
+			}
+		});
+	}
+
+	// Change the counters, or start or stop the replay, with no delta half applied
+	private void swap(Runnable change) {
+		swapLock.writeLock().lock();
+		try {
+			change.run();
+		} finally {
+			swapLock.writeLock().unlock();
+		}
+	}
+
+	// GROUP BY counts of the tables
+	private Counters count() {
+
+		Counters fresh = new Counters(LocalDateTime.now());
+		petRepository.countGroupByTypeId().forEach(row -> fresh.pets.add((Integer) row.getKey(), row.getCount()));
+		ownerRepository.countGroupByCity().forEach(row -> fresh.owners.add(city((String) row.getKey()), row.getCount()));
+		visitRepository.countGroupByVetId().forEach(row -> {
+			Integer vetId = vet((Integer) row.getKey());
+			fresh.visits.add(vetId, row.getCount());
+			fresh.revenue.add(vetId, cents(row.getTotal()));
+		});
+
+		return fresh;
+	}
+
+	private static Integer vet(Integer vetId) {
+		return vetId == null ? NO_VET : vetId;
+	}
+
+	private static String city(String city) {
+		return city == null ? NO_CITY : city;
+	}
+
+	// Costs are DECIMAL(10,2) : counted in cents
+	private static long cents(BigDecimal amount) {
+		return amount == null ? 0 : amount.movePointRight(2).longValue();
+	}
+
+	private static void afterCommit(Runnable change) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					change.run();
+				}
+			});
+		} else {
+			change.run();
+		}
+	}
+
+	/**
+	 * Change to the counters : rows added (positive) or removed (negative)
+	 */
+	public static class Delta {
+
+		private final Map<Integer, Long> pets = new HashMap<>();
+
+		private final Map<String, Long> owners = new HashMap<>();
+
+		private final Map<Integer, Long> visits = new HashMap<>();
+
+		private final Map<Integer, Long> revenue = new HashMap<>();
+
+		/**
+		 * Pets of a type
+		 *
+		 * @param typeId
+		 * @param count
+		 * @return
+		 */
+		public Delta pet(int typeId, long count) {
+			pets.merge(typeId, count, Long::sum);
+			return this;
+		}
+
+		/**
+		 * Owners of a city
+		 *
+		 * @param city
+		 * @param count
+		 * @return
+		 */
+		public Delta owner(String city, long count) {
+			owners.merge(city(city), count, Long::sum);
+			return this;
+		}
+
+		/**
+		 * Visits of a vet, null for none, and their cost
+		 *
+		 * @param vetId
+		 * @param count
+		 * @param cost
+		 * @return
+		 */
+		public Delta visit(Integer vetId, long count, BigDecimal cost) {
+			visits.merge(vet(vetId), count, Long::sum);
+			revenue.merge(vet(vetId), cents(cost), Long::sum);
+			return this;
+		}
+	}
+
+	/**
+	 * Counters by key with their totals
+	 */
+	private static final class Counters {
+
+		private final LocalDateTime reconciledAt;
+
+		private final Counter<Integer> pets = new Counter<>();
+
+		private final Counter<String> owners = new Counter<>();
+
+		private final Counter<Integer> visits = new Counter<>();
+
+		private final Counter<Integer> revenue = new Counter<>();
+
+		Counters(LocalDateTime reconciledAt) {
+			this.reconciledAt = reconciledAt;
+		}
+
+		void add(Delta delta) {
+			delta.pets.forEach(pets::add);
+			delta.owners.forEach(owners::add);
+			delta.visits.forEach(visits::add);
+			delta.revenue.forEach(revenue::add);
+		}
+
+		StatsDTO snapshot(LocalDateTime reconciledAt) {
+			return StatsDTO.builder()
+					.pets(pets.total.sum())
+					.owners(owners.total.sum())
+					.visits(visits.total.sum())
+					.revenue(BigDecimal.valueOf(revenue.total.sum(), 2))
+					.petsByType(pets.snapshot(count -> count))
+					.ownersByCity(without(owners.snapshot(count -> count), NO_CITY))
+					.visitsByVet(without(visits.snapshot(count -> count), NO_VET))
+					.revenueByVet(without(revenue.snapshot(cents -> BigDecimal.valueOf(cents, 2)), NO_VET))
+					.reconciledAt(reconciledAt)
+					.build();
+		}
+
+		private static <K, V> Map<K, V> without(Map<K, V> counts, K key) {
+			counts.remove(key);
+			return counts;
+		}
+	}
+
+	/**
+	 * One counter per key and the total, updated without locks
+	 */
+	private static final class Counter<K> {
+
+		private final Map<K, LongAdder> counts = new ConcurrentHashMap<>();
+
+		private final LongAdder total = new LongAdder();
+
+		void add(K key, long delta) {
+			counts.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+			total.add(delta);
+		}
+
+		// Sorted by key, without the empty ones
+		<V> Map<K, V> snapshot(Function<Long, V> value) {
+			Map<K, V> snapshot = new TreeMap<>();
+			counts.forEach((key, count) -> {
+				long sum = count.sum();
+				if (sum != 0)
+					snapshot.put(key, value.apply(sum));
+			});
+			return snapshot;
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.tecsup.petclinic.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.petclinic.dtos.ChangeEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends the changes to a local file, as newline-delimited JSON, synced
+ * to disk before the batch is marked sent (petclinic.changes.sink=file,
+ * path in petclinic.changes.file).
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "petclinic.changes.sink", havingValue = "file")
+public class FileChangeSink implements ChangeSink {
+
+	private final ObjectMapper objectMapper;
+
+	private final Path file;
+
+	public FileChangeSink(ObjectMapper objectMapper, @Value("${petclinic.changes.file}") Path file) {
+		this.objectMapper = objectMapper;
+		this.file = file;
+	}
+
+	@Override
+	public synchronized void publish(List<ChangeEventDTO> changes) throws IOException {
+
+		StringBuilder lines = new StringBuilder();
+		for (ChangeEventDTO change : changes)
+			lines.append(objectMapper.writeValueAsString(change)).append('\n');
+
+		if (file.getParent() != null)
+			Files.createDirectories(file.getParent());
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND)) {
+			OutputStream out = Channels.newOutputStream(channel);
+			out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+			channel.force(false);
+		}
+	}
+
+}
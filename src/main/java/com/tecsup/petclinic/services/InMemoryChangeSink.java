@@ -0,0 +1,37 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.ChangeEventDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the published changes in memory, for the tests
+ * (petclinic.changes.sink=memory)
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "petclinic.changes.sink", havingValue = "memory")
+public class InMemoryChangeSink implements ChangeSink {
+
+	private final List<ChangeEventDTO> changes = new ArrayList<>();
+
+	@Override
+	public synchronized void publish(List<ChangeEventDTO> changes) {
+		this.changes.addAll(changes);
+	}
+
+	/**
+	 * Changes published so far, in the order received
+	 *
+	 * @return
+	 */
+	public synchronized List<ChangeEventDTO> getChanges() {
+		return new ArrayList<>(changes);
+	}
+
+}
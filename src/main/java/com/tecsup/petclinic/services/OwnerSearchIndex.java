@@ -0,0 +1,391 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.ChangeEventDTO;
+import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.entities.ChangeEvent.Kind;
+import com.tecsup.petclinic.repositories.ChangeEventRepository;
+import com.tecsup.petclinic.repositories.OwnerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the owners for the front desk search : words starting
+ * with the terms, or close to them (shared trigrams, for misspellings), in
+ * the first name, last name, city and telephone.
+ *
+ * Built from the table at startup and kept up to date by OwnerServiceImpl,
+ * after each commit. Every refresh-ms it also applies the owner changes of
+ * the /changes feed (see ChangeRelay), so the changes made on the other
+ * instances show up within refresh-ms plus the relay delay. It holds at
+ * most <code>max-owners</code> owners: over that it is dropped and
+ * {@link #isReady()} is false, so searches go to the database instead,
+ * until a refresh finds the owners back under max-owners and rebuilds it.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class OwnerSearchIndex {
+
+	// Changes of the feed read per query on refresh
+	private static final int REFRESH_BATCH = 500;
+
+	// Shortest term also matched by trigrams, shorter ones only as prefixes
+	private static final int MIN_FUZZY_LENGTH = 4;
+
+	// Share of the term trigrams a word must have to match it
+	private static final double MIN_SIMILARITY = 0.5;
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+	private final OwnerRepository ownerRepository;
+
+	private final ChangeEventRepository changeEventRepository;
+
+	private final int maxOwners;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Indexed owners by id
+	private final Map<Long, OwnerDTO> owners = new HashMap<>();
+
+	// Words of the owners, sorted for prefix lookup : word -> owner ids
+	private final NavigableMap<String, Set<Long>> words = new TreeMap<>();
+
+	// Trigrams of the words : trigram -> owner ids
+	private final Map<String, Set<Long>> trigrams = new HashMap<>();
+
+	private volatile boolean ready;
+
+	// Position in the /changes feed up to which the owner changes are indexed
+	private long indexedSeq;
+
+	public OwnerSearchIndex(OwnerRepository ownerRepository, ChangeEventRepository changeEventRepository,
+			@Value("${petclinic.owners.search.max-owners:100000}") int maxOwners) {
+		this.ownerRepository = ownerRepository;
+		this.changeEventRepository = changeEventRepository;
+		this.maxOwners = maxOwners;
+	}
+
+	/**
+	 * Load all the owners into the index
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional(readOnly = true)
+	public synchronized void rebuild() {
+
+		long count = ownerRepository.count();
+		if (count > maxOwners) {
+			log.warn("Owner search index not built : {} owners, more than {}", count, maxOwners);
+			ready = false;
+			return;
+		}
+
+		long start = System.nanoTime();
+
+		// Read first : the changes numbered while streaming are applied again, not lost
+		long lastSeq = changeEventRepository.findLastSeq();
+
+		lock.writeLock().lock();
+		try (Stream<OwnerDTO> all = ownerRepository.streamAllDto()) {
+			owners.clear();
+			words.clear();
+			trigrams.clear();
+			all.forEach(this::index);
+			ready = owners.size() <= maxOwners;
+			indexedSeq = lastSeq;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		log.info("Owner search index built : {} owners, {} words in {} ms", owners.size(), words.size(),
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Apply the owner changes of the /changes feed since the last refresh,
+	 * those of the other instances included, or rebuild the index dropped
+	 * once the owners are back under max-owners
+	 */
+	@Scheduled(initialDelayString = "${petclinic.owners.search.refresh-ms:5000}",
+			fixedDelayString = "${petclinic.owners.search.refresh-ms:5000}")
+	@Transactional(readOnly = true)
+	public synchronized void refresh() {
+
+		if (!ready) {
+			if (ownerRepository.count() <= maxOwners)
+				rebuild();
+			return;
+		}
+
+		List<ChangeEventDTO> changes;
+		do {
+			changes = changeEventRepository.findBySeqAfter(indexedSeq, Limit.of(REFRESH_BATCH));
+			if (changes.isEmpty())
+				return;
+
+			Set<Long> ids = changes.stream()
+					.filter(change -> change.getEntityType() == Kind.OWNER)
+					.map(ChangeEventDTO::getEntityId)
+					.collect(Collectors.toSet());
+
+			// Deleted owners are not read back : removed
+			Map<Long, OwnerDTO> current = new HashMap<>();
+			if (!ids.isEmpty())
+				ownerRepository.findDtoByIdIn(ids).forEach(owner -> current.put(owner.getId(), owner));
+
+			lock.writeLock().lock();
+			try {
+				if (!ready)
+					return;
+				for (Long id : ids)
+					replace(id, current.get(id));
+				indexedSeq = changes.get(changes.size() - 1).getSeq();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} while (changes.size() == REFRESH_BATCH);
+	}
+
+	/**
+	 * Whether searches can be answered from the index
+	 *
+	 * @return
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Add or replace an owner, once the current transaction commits
+	 *
+	 * @param owner
+	 */
+	public void put(OwnerDTO owner) {
+		OwnerDTO copy = copy(owner);
+		afterCommit(() -> {
+			lock.writeLock().lock();
+			try {
+				// Not built yet (it will read the change) or disabled
+				if (ready)
+					replace(copy.getId(), copy);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * Remove an owner, once the current transaction commits
+	 *
+	 * @param id
+	 */
+	public void remove(Long id) {
+		afterCommit(() -> {
+			lock.writeLock().lock();
+			try {
+				if (ready)
+					replace(id, null);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+	}
+
+	/**
+	 * Owners matching every word of the query, best matches first : whole
+	 * words, then words starting with the term, then close words.
+	 *
+	 * @param query
+	 * @param size
+	 * @return
+	 */
+	public List<OwnerDTO> search(String query, int size) {
+
+		List<String> terms = words(query);
+		if (terms.isEmpty())
+			return List.of();
+
+		lock.readLock().lock();
+		try {
+			Map<Long, Double> scores = null;
+			for (String term : terms) {
+				Map<Long, Double> termScores = match(term);
+				if (scores == null) {
+					scores = termScores;
+				} else {
+					scores.keySet().retainAll(termScores.keySet());
+					scores.replaceAll((id, score) -> score + termScores.get(id));
+				}
+				if (scores.isEmpty())
+					return List.of();
+			}
+
+			return scores.entrySet().stream()
+					.sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+							.thenComparing(Map.Entry.comparingByKey()))
+					.limit(size)
+					.map(entry -> copy(owners.get(entry.getKey())))
+					.toList();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Map<Long, Double> match(String term) {
+
+		Map<Long, Double> scores = new HashMap<>();
+
+		// Words starting with the term, a whole word scores more
+		words.subMap(term, true, term + Character.MAX_VALUE, false).forEach((word, ids) -> {
+			double score = word.length() == term.length() ? 3 : 2;
+			ids.forEach(id -> scores.merge(id, score, Math::max));
+		});
+
+		if (term.length() < MIN_FUZZY_LENGTH)
+			return scores;
+
+		// Words sharing enough trigrams with the term
+		Set<String> termTrigrams = trigrams(term);
+		Map<Long, Integer> shared = new HashMap<>();
+		for (String trigram : termTrigrams) {
+			Set<Long> ids = trigrams.get(trigram);
+			if (ids != null)
+				ids.forEach(id -> shared.merge(id, 1, Integer::sum));
+		}
+		shared.forEach((id, count) -> {
+			double similarity = (double) count / termTrigrams.size();
+			if (similarity >= MIN_SIMILARITY)
+				scores.merge(id, similarity, Math::max);
+		});
+
+		return scores;
+	}
+
+	// Index the owner in place of the one with the id, null to remove it. Called
+	// holding the write lock, drops the index over max-owners
+	private void replace(Long id, OwnerDTO owner) {
+
+		unindex(id);
+		if (owner == null)
+			return;
+
+		index(owner);
+		if (owners.size() > maxOwners) {
+			log.warn("Owner search index disabled : more than {} owners", maxOwners);
+			ready = false;
+			owners.clear();
+			words.clear();
+			trigrams.clear();
+		}
+	}
+
+	private void index(OwnerDTO owner) {
+		owners.put(owner.getId(), owner);
+		for (String word : words(owner)) {
+			words.computeIfAbsent(word, key -> new HashSet<>()).add(owner.getId());
+			for (String trigram : trigrams(word))
+				trigrams.computeIfAbsent(trigram, key -> new HashSet<>()).add(owner.getId());
+		}
+	}
+
+	private void unindex(Long id) {
+		OwnerDTO owner = owners.remove(id);
+		if (owner == null)
+			return;
+		for (String word : words(owner)) {
+			unlink(words, word, id);
+			for (String trigram : trigrams(word))
+				unlink(trigrams, trigram, id);
+		}
+	}
+
+	private static void unlink(Map<String, Set<Long>> postings, String key, Long id) {
+		Set<Long> ids = postings.get(key);
+		if (ids != null && ids.remove(id) && ids.isEmpty())
+			postings.remove(key);
+	}
+
+	private static Set<String> words(OwnerDTO owner) {
+		Set<String> words = new LinkedHashSet<>();
+		for (String field : new String[] { owner.getFirstName(), owner.getLastName(), owner.getCity(),
+				owner.getTelephone() })
+			words.addAll(words(field));
+		return words;
+	}
+
+	// Lower case words without accents : "Peña Díaz" -> [pena, diaz]
+	private static List<String> words(String text) {
+		List<String> words = new ArrayList<>();
+		if (text == null)
+			return words;
+		String plain = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		for (String word : SEPARATORS.split(plain.toLowerCase(Locale.ROOT)))
+			if (!word.isEmpty())
+				words.add(word);
+		return words;
+	}
+
+	// Trigrams of a word padded as "  word ", so the first letters weigh more
+	private static Set<String> trigrams(String word) {
+		String padded = "  " + word + " ";
+		Set<String> trigrams = new LinkedHashSet<>();
+		for (int i = 0; i + 3 <= padded.length(); i++)
+			trigrams.add(padded.substring(i, i + 3));
+		return trigrams;
+	}
+
+	private static OwnerDTO copy(OwnerDTO owner) {
+		return OwnerDTO.builder()
+				.id(owner.getId())
+				.firstName(owner.getFirstName())
+				.lastName(owner.getLastName())
+				.address(owner.getAddress())
+				.city(owner.getCity())
+				.telephone(owner.getTelephone())
+				.version(owner.getVersion())
+				.build();
+	}
+
+	private static void afterCommit(Runnable change) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					change.run();
+				}
+			});
+		} else {
+			change.run();
+		}
+	}
+
+}
@@ -1,10 +1,14 @@
 package com.tecsup.petclinic.services;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.entities.Owner;
 import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.exceptions.VersionConflictException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for Owner entity
@@ -23,12 +27,23 @@ public interface OwnerService {
 	public OwnerDTO create(OwnerDTO ownerDTO);
 
 	/**
-	 * Update an existing owner
+	 * Create many owners in JDBC batches
+	 *
+	 * @param ownerDTOs
+	 * @return generated ids, in the same order
+	 */
+	List<Long> createAll(List<OwnerDTO> ownerDTOs);
+
+	/**
+	 * Update an existing owner. When the DTO has a version the update only
+	 * applies if it is still the stored one.
 	 * 
 	 * @param ownerDTO
-	 * @return
+	 * @return the owner with its new version
+	 * @throws OwnerNotFoundException
+	 * @throws VersionConflictException
 	 */
-	OwnerDTO update(OwnerDTO ownerDTO);
+	OwnerDTO update(OwnerDTO ownerDTO) throws OwnerNotFoundException;
 
 	/**
 	 * Delete an owner by id
@@ -38,6 +53,16 @@ public interface OwnerService {
 	 */
 	void delete(Long id) throws OwnerNotFoundException;
 
+	/**
+	 * Delete an owner by id when its version matches
+	 *
+	 * @param id
+	 * @param version expected version, null for any
+	 * @throws OwnerNotFoundException
+	 * @throws VersionConflictException
+	 */
+	void delete(Long id, Integer version) throws OwnerNotFoundException;
+
 	/**
 	 * Find an owner by id
 	 * 
@@ -46,6 +71,34 @@ public interface OwnerService {
 	 */
 	OwnerDTO findById(Long id) throws OwnerNotFoundException;
 
+	/**
+	 * Version of an owner, read without loading it
+	 *
+	 * @param id
+	 * @return
+	 * @throws OwnerNotFoundException
+	 */
+	Integer findVersion(Long id) throws OwnerNotFoundException;
+
+	/**
+	 * Version of the whole owners table : row count, sum of the ids and sum
+	 * of the versions, e.g. "5.15.0"
+	 *
+	 * @return
+	 */
+	String findTableVersion();
+
+	/**
+	 * Search owners by the start of, or a close spelling of, the words of
+	 * their first name, last name, city or telephone. Every word of the
+	 * query must match.
+	 *
+	 * @param query
+	 * @param size maximum number of owners, bounded as the pages
+	 * @return best matches first
+	 */
+	List<OwnerDTO> search(String query, Integer size);
+
 	/**
 	 * Find owners by first name
 	 * 
@@ -76,4 +129,55 @@ public interface OwnerService {
 	 * @return
 	 */
 	List<Owner> findAll();
+
+	/**
+	 * Find all owners ordered by id, read as DTOs without loading the entities
+	 *
+	 * @return
+	 */
+	List<OwnerDTO> findAllDto();
+
+	/**
+	 * Find a page of owners ordered by id
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	KeysetPageDTO<OwnerDTO> findPage(Long after, Integer size);
+
+	/**
+	 * Find the pets of an owner ordered by id
+	 *
+	 * @param id
+	 * @return
+	 * @throws OwnerNotFoundException
+	 */
+	List<PetDTO> findPets(Long id) throws OwnerNotFoundException;
+
+	/**
+	 * Find all owners ordered by id, each one with its pets. Two queries,
+	 * whatever the number of owners.
+	 *
+	 * @return
+	 */
+	List<OwnerDTO> findAllWithPets();
+
+	/**
+	 * Find a page of owners ordered by id, each one with its pets. Two
+	 * queries, whatever the page size.
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	KeysetPageDTO<OwnerDTO> findPageWithPets(Long after, Integer size);
+
+	/**
+	 * Export all owners ordered by id, handing them one by one to the consumer
+	 *
+	 * @param consumer
+	 * @return number of exported owners
+	 */
+	long exportAll(Consumer<OwnerDTO> consumer);
 }
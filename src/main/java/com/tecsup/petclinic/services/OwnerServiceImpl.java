@@ -1,33 +1,66 @@
 package com.tecsup.petclinic.services;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.ChangeEvent;
+import com.tecsup.petclinic.entities.ChangeEvent.Kind;
+import com.tecsup.petclinic.entities.ChangeEvent.Operation;
 import com.tecsup.petclinic.entities.Owner;
 import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.exceptions.VersionConflictException;
 import com.tecsup.petclinic.mapper.OwnerMapper;
 import com.tecsup.petclinic.repositories.OwnerRepository;
+import com.tecsup.petclinic.repositories.PetRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
- * Service implementation for Owner entity
+ * Service implementation for Owner entity. The reads select straight into
+ * OwnerDTO (see OwnerRepository.DTO_SELECT), in read-only transactions.
+ * The owners with their pets take two queries : the owners, then the pets
+ * of all of them, put together in memory. The writes record their change
+ * in the outbox (see ChangeOutbox), in the same transaction.
  * 
  * @author jgomezm
  *
  */
 @Service
+@Timed("petclinic.service")
 @Slf4j
 public class OwnerServiceImpl implements OwnerService {
 
 	OwnerRepository ownerRepository;
 	OwnerMapper ownerMapper;
-
-	public OwnerServiceImpl(OwnerRepository ownerRepository, OwnerMapper ownerMapper) {
+	BatchWriter batchWriter;
+	OwnerSearchIndex searchIndex;
+	PetRepository petRepository;
+	ClinicStats clinicStats;
+	ChangeOutbox changeOutbox;
+	AppointmentIndex appointmentIndex;
+
+	public OwnerServiceImpl(OwnerRepository ownerRepository, OwnerMapper ownerMapper, BatchWriter batchWriter,
+			OwnerSearchIndex searchIndex, PetRepository petRepository, ClinicStats clinicStats,
+			ChangeOutbox changeOutbox, AppointmentIndex appointmentIndex) {
 		this.ownerRepository = ownerRepository;
+		this.clinicStats = clinicStats;
+		this.changeOutbox = changeOutbox;
+		this.appointmentIndex = appointmentIndex;
+		this.petRepository = petRepository;
 		this.ownerMapper = ownerMapper;
+		this.batchWriter = batchWriter;
+		this.searchIndex = searchIndex;
 	}
 
 	/**
@@ -37,11 +70,40 @@ public class OwnerServiceImpl implements OwnerService {
 	 * @return
 	 */
 	@Override
+	@Transactional
 	public OwnerDTO create(OwnerDTO ownerDTO) {
 
 		Owner newOwner = ownerRepository.save(ownerMapper.mapToEntity(ownerDTO));
+		changeOutbox.record(Kind.OWNER, newOwner.getId(), Operation.CREATE, newOwner.getVersion());
+
+		OwnerDTO newOwnerDTO = ownerMapper.mapToDto(newOwner);
+		searchIndex.put(newOwnerDTO);
+		clinicStats.apply(new ClinicStats.Delta().owner(newOwner.getCity(), 1));
 
-		return ownerMapper.mapToDto(newOwner);
+		return newOwnerDTO;
+	}
+
+	/**
+	 * Create many owners in JDBC batches, committed in chunks
+	 *
+	 * @param ownerDTOs
+	 * @return generated ids, in the same order
+	 */
+	@Override
+	public List<Long> createAll(List<OwnerDTO> ownerDTOs) {
+
+		List<Owner> owners = ownerMapper.mapToEntityList(ownerDTOs);
+		owners.forEach(owner -> owner.setId(null));
+
+		List<Long> ids = batchWriter.persistAll(owners, Owner::getId,
+				owner -> new ChangeEvent(Kind.OWNER, owner.getId(), Operation.CREATE, owner.getVersion()));
+		owners.forEach(owner -> searchIndex.put(ownerMapper.mapToDto(owner)));
+
+		ClinicStats.Delta delta = new ClinicStats.Delta();
+		owners.forEach(owner -> delta.owner(owner.getCity(), 1));
+		clinicStats.apply(delta);
+
+		return ids;
 	}
 
 	/**
@@ -49,14 +111,31 @@ public class OwnerServiceImpl implements OwnerService {
 	 * 
 	 * @param ownerDTO
 	 * @return
+	 * @throws OwnerNotFoundException
 	 */
 	@Override
-	public OwnerDTO update(OwnerDTO ownerDTO) {
+	@Transactional
+	public OwnerDTO update(OwnerDTO ownerDTO) throws OwnerNotFoundException {
+
+		int updated = ownerRepository.updateById(ownerDTO.getId(), ownerDTO.getVersion(), ownerDTO.getFirstName(),
+				ownerDTO.getLastName(), ownerDTO.getAddress(), ownerDTO.getCity(), ownerDTO.getTelephone());
+
+		if (updated == 0) {
+			if (ownerDTO.getVersion() != null && ownerRepository.existsById(ownerDTO.getId()))
+				throw new VersionConflictException("Version " + ownerDTO.getVersion() + " is not current");
+			throw new OwnerNotFoundException("Record not found...!");
+		}
 
-		Owner updatedOwner = ownerRepository.save(ownerMapper.mapToEntity(ownerDTO));
+		if (ownerDTO.getVersion() != null)
+			ownerDTO.setVersion(ownerDTO.getVersion() + 1);
+		else
+			ownerDTO.setVersion(ownerRepository.findVersionById(ownerDTO.getId()).orElse(null));
 
-		return ownerMapper.mapToDto(updatedOwner);
+		changeOutbox.record(Kind.OWNER, ownerDTO.getId(), Operation.UPDATE, ownerDTO.getVersion());
+		searchIndex.put(ownerDTO);
+		clinicStats.recount();
 
+		return ownerDTO;
 	}
 
 	/**
@@ -66,12 +145,39 @@ public class OwnerServiceImpl implements OwnerService {
 	 * @throws OwnerNotFoundException
 	 */
 	@Override
+	@Transactional
 	public void delete(Long id) throws OwnerNotFoundException {
+		delete(id, null);
+	}
 
-		OwnerDTO owner = findById(id);
+	/**
+	 * Delete an owner by id when its version matches
+	 *
+	 * @param id
+	 * @param version expected version, null for any
+	 * @throws OwnerNotFoundException
+	 * @throws VersionConflictException
+	 */
+	@Override
+	@Transactional
+	public void delete(Long id, Integer version) throws OwnerNotFoundException {
 
-		ownerRepository.delete(this.ownerMapper.mapToEntity(owner));
+		// Read before the delete, the pets and their visits go with the owner
+		List<Integer> petIds = petRepository.findIdByOwnerId(id.intValue());
 
+		int deleted = ownerRepository.deleteOneById(id, version);
+
+		if (deleted == 0) {
+			if (version != null && ownerRepository.existsById(id))
+				throw new VersionConflictException("Version " + version + " is not current");
+			throw new OwnerNotFoundException("Record not found...!");
+		}
+
+		changeOutbox.recordAll(Kind.PET, petIds, Operation.DELETE);
+		changeOutbox.record(Kind.OWNER, id, Operation.DELETE, null);
+		searchIndex.remove(id);
+		clinicStats.recount();
+		appointmentIndex.releasePets(petIds);
 	}
 
 	/**
@@ -81,14 +187,62 @@ public class OwnerServiceImpl implements OwnerService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public OwnerDTO findById(Long id) throws OwnerNotFoundException {
 
-		Optional<Owner> owner = ownerRepository.findById(id);
+		return ownerRepository.findDtoById(id)
+				.orElseThrow(() -> new OwnerNotFoundException("Record not found...!"));
+	}
 
-		if (!owner.isPresent())
-			throw new OwnerNotFoundException("Record not found...!");
+	/**
+	 * Version of an owner, read without loading it
+	 *
+	 * @param id
+	 * @return
+	 * @throws OwnerNotFoundException
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Integer findVersion(Long id) throws OwnerNotFoundException {
+
+		return ownerRepository.findVersionById(id)
+				.orElseThrow(() -> new OwnerNotFoundException("Record not found...!"));
+	}
+
+	/**
+	 * Version of the whole owners table
+	 *
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public String findTableVersion() {
+		return ownerRepository.findTableVersion();
+	}
+
+	/**
+	 * Search owners in the in-memory index. While it is not available, only
+	 * the last names starting with the query are found, in the database.
+	 *
+	 * @param query
+	 * @param size
+	 * @return
+	 */
+	@Override
+	public List<OwnerDTO> search(String query, Integer size) {
+
+		int limit = KeysetPageDTO.boundedSize(size);
+
+		if (query == null || query.isBlank())
+			return List.of();
+
+		if (searchIndex.isReady())
+			return searchIndex.search(query, limit);
 
-		return this.ownerMapper.mapToDto(owner.get());
+		List<Owner> owners = ownerRepository.findByLastNameStartingWithOrderByLastNameAscIdAsc(query.trim(),
+				Limit.of(limit));
+
+		return ownerMapper.mapToDtoList(owners);
 	}
 
 	/**
@@ -98,16 +252,15 @@ public class OwnerServiceImpl implements OwnerService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<OwnerDTO> findByFirstName(String firstName) {
 
-		List<Owner> owners = ownerRepository.findByFirstName(firstName);
+		List<OwnerDTO> owners = ownerRepository.findDtoByFirstName(firstName);
 
-		owners.forEach(owner -> log.info("" + owner));
+		if (log.isDebugEnabled())
+			owners.forEach(owner -> log.debug("{}", owner));
 
-		return owners
-				.stream()
-				.map(this.ownerMapper::mapToDto)
-				.collect(Collectors.toList());
+		return owners;
 	}
 
 	/**
@@ -117,11 +270,13 @@ public class OwnerServiceImpl implements OwnerService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Owner> findByLastName(String lastName) {
 
 		List<Owner> owners = ownerRepository.findByLastName(lastName);
 
-		owners.forEach(owner -> log.info("" + owner));
+		if (log.isDebugEnabled())
+			owners.forEach(owner -> log.debug("{}", owner));
 
 		return owners;
 	}
@@ -133,11 +288,13 @@ public class OwnerServiceImpl implements OwnerService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Owner> findByCity(String city) {
 
 		List<Owner> owners = ownerRepository.findByCity(city);
 
-		owners.forEach(owner -> log.info("" + owner));
+		if (log.isDebugEnabled())
+			owners.forEach(owner -> log.debug("{}", owner));
 
 		return owners;
 	}
@@ -148,7 +305,136 @@ public class OwnerServiceImpl implements OwnerService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Owner> findAll() {
 		return ownerRepository.findAll();
 	}
+
+	/**
+	 * Find all owners ordered by id, read as DTOs without loading the entities
+	 *
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<OwnerDTO> findAllDto() {
+		return ownerRepository.findAllDto();
+	}
+
+	/**
+	 * Find a page of owners ordered by id
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public KeysetPageDTO<OwnerDTO> findPage(Long after, Integer size) {
+
+		int pageSize = KeysetPageDTO.boundedSize(size);
+
+		List<OwnerDTO> owners = ownerRepository.findDtoByIdGreaterThan(after == null ? 0L : after, Limit.of(pageSize + 1));
+
+		return KeysetPageDTO.of(owners, pageSize, OwnerDTO::getId);
+	}
+
+	/**
+	 * Find the pets of an owner ordered by id
+	 *
+	 * @param id
+	 * @return
+	 * @throws OwnerNotFoundException
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<PetDTO> findPets(Long id) throws OwnerNotFoundException {
+
+		List<PetDTO> pets = petRepository.findDtoByOwnerId(id.intValue());
+
+		// No pets : tell an owner without pets from a missing one
+		if (pets.isEmpty() && !ownerRepository.existsById(id))
+			throw new OwnerNotFoundException("Record not found...!");
+
+		return pets;
+	}
+
+	/**
+	 * Find all owners ordered by id, each one with its pets : all the owners,
+	 * then all the pets
+	 *
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<OwnerDTO> findAllWithPets() {
+
+		List<OwnerDTO> owners = ownerRepository.findAllDto();
+
+		return withPets(owners, petRepository.findAllDto());
+	}
+
+	/**
+	 * Find a page of owners ordered by id, each one with its pets : the page,
+	 * then the pets of its owners in one IN query
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public KeysetPageDTO<OwnerDTO> findPageWithPets(Long after, Integer size) {
+
+		KeysetPageDTO<OwnerDTO> page = findPage(after, size);
+
+		if (!page.getItems().isEmpty()) {
+			List<Integer> ownerIds = page.getItems().stream().map(owner -> owner.getId().intValue()).toList();
+			withPets(page.getItems(), petRepository.findDtoByOwnerIdIn(ownerIds));
+		}
+
+		return page;
+	}
+
+	// Hand each pet to its owner, every owner gets a list even when empty
+	private List<OwnerDTO> withPets(List<OwnerDTO> owners, List<PetDTO> pets) {
+
+		Map<Integer, List<PetDTO>> petsByOwner = new HashMap<>();
+		for (OwnerDTO owner : owners) {
+			owner.setPets(new ArrayList<>());
+			petsByOwner.put(owner.getId().intValue(), owner.getPets());
+		}
+
+		for (PetDTO pet : pets) {
+			List<PetDTO> ownerPets = petsByOwner.get(pet.getOwnerId());
+			if (ownerPets != null)
+				ownerPets.add(pet);
+		}
+
+		return owners;
+	}
+
+	/**
+	 * Export all owners ordered by id, handing them one by one to the consumer.
+	 * Rows are read as DTOs, so memory does not grow with the table size.
+	 *
+	 * @param consumer
+	 * @return number of exported owners
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public long exportAll(Consumer<OwnerDTO> consumer) {
+
+		long count = 0;
+
+		try (Stream<OwnerDTO> owners = ownerRepository.streamAllDto()) {
+			Iterator<OwnerDTO> iterator = owners.iterator();
+			while (iterator.hasNext()) {
+				consumer.accept(iterator.next());
+				count++;
+			}
+		}
+
+		return count;
+	}
 }
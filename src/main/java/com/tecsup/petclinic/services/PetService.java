@@ -1,10 +1,13 @@
 package com.tecsup.petclinic.services;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.entities.Pet;
 import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.exceptions.VersionConflictException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 
@@ -21,11 +24,23 @@ public interface PetService {
 	public PetDTO create(PetDTO petDTO);
 
 	/**
+	 * Create many pets in JDBC batches
+	 *
+	 * @param petDTOs
+	 * @return generated ids, in the same order
+	 */
+	List<Integer> createAll(List<PetDTO> petDTOs);
+
+	/**
+	 * Update an existing pet. When the DTO has a version the update only
+	 * applies if it is still the stored one.
 	 * 
 	 * @param pet
-	 * @return
+	 * @return the pet as stored, with its new version
+	 * @throws PetNotFoundException
+	 * @throws VersionConflictException
 	 */
-	PetDTO update(PetDTO pet);
+	PetDTO update(PetDTO pet) throws PetNotFoundException;
 
 	/**
 	 * 
@@ -34,6 +49,16 @@ public interface PetService {
 	 */
 	void delete(Integer id) throws PetNotFoundException;
 
+	/**
+	 * Delete a pet by id when its version matches
+	 *
+	 * @param id
+	 * @param version expected version, null for any
+	 * @throws PetNotFoundException
+	 * @throws VersionConflictException
+	 */
+	void delete(Integer id, Integer version) throws PetNotFoundException;
+
 	/**
 	 * 
 	 * @param id
@@ -41,6 +66,23 @@ public interface PetService {
 	 */
 	PetDTO findById(Integer id) throws PetNotFoundException;
 
+	/**
+	 * Version of a pet, read without loading it
+	 *
+	 * @param id
+	 * @return
+	 * @throws PetNotFoundException
+	 */
+	Integer findVersion(Integer id) throws PetNotFoundException;
+
+	/**
+	 * Version of the whole pets table : row count, sum of the ids and sum
+	 * of the versions, e.g. "5.15.0"
+	 *
+	 * @return
+	 */
+	String findTableVersion();
+
 	/**
 	 * 
 	 * @param name
@@ -67,4 +109,28 @@ public interface PetService {
 	 * @return
 	 */
 	List<Pet> findAll();
-}
\ No newline at end of file
+
+	/**
+	 * Find all pets ordered by id, read as DTOs without loading the entities
+	 *
+	 * @return
+	 */
+	List<PetDTO> findAllDto();
+
+	/**
+	 * Find a page of pets ordered by id
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	KeysetPageDTO<PetDTO> findPage(Integer after, Integer size);
+
+	/**
+	 * Export all pets ordered by id, handing them one by one to the consumer
+	 *
+	 * @param consumer
+	 * @return number of exported pets
+	 */
+	long exportAll(Consumer<PetDTO> consumer);
+}
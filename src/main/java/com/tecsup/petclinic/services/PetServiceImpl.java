@@ -1,32 +1,56 @@
 package com.tecsup.petclinic.services;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.ChangeEvent;
+import com.tecsup.petclinic.entities.ChangeEvent.Kind;
+import com.tecsup.petclinic.entities.ChangeEvent.Operation;
 import com.tecsup.petclinic.entities.Pet;
 import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.exceptions.VersionConflictException;
 import com.tecsup.petclinic.mapper.PetMapper;
 import com.tecsup.petclinic.repositories.PetRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
- * 
+ * The reads select straight into PetDTO (see PetRepository.DTO_SELECT), in
+ * read-only transactions : no entity is hydrated, snapshotted for dirty
+ * checking or kept in the persistence context. The writes record their
+ * change in the outbox (see ChangeOutbox), in the same transaction.
+ *
  * @author jgomezm
  *
  */
 @Service
+@Timed("petclinic.service")
 @Slf4j
 public class PetServiceImpl implements PetService {
 
 	PetRepository petRepository;
 	PetMapper petMapper;
+	BatchWriter batchWriter;
+	ClinicStats clinicStats;
+	ChangeOutbox changeOutbox;
+	AppointmentIndex appointmentIndex;
 
-	public PetServiceImpl (PetRepository petRepository, PetMapper petMapper) {
+	public PetServiceImpl(PetRepository petRepository, PetMapper petMapper, BatchWriter batchWriter,
+			ClinicStats clinicStats, ChangeOutbox changeOutbox, AppointmentIndex appointmentIndex) {
 		this.petRepository = petRepository;
 		this.petMapper = petMapper;
+		this.batchWriter = batchWriter;
+		this.clinicStats = clinicStats;
+		this.changeOutbox = changeOutbox;
+		this.appointmentIndex = appointmentIndex;
 	}
 
 
@@ -36,25 +60,73 @@ public class PetServiceImpl implements PetService {
 	 * @return
 	 */
 	@Override
+	@Transactional
 	public PetDTO create(PetDTO petDTO) {
 
 		Pet newPet = petRepository.save(petMapper.mapToEntity(petDTO));
+		changeOutbox.record(Kind.PET, newPet.getId(), Operation.CREATE, newPet.getVersion());
+		clinicStats.apply(new ClinicStats.Delta().pet(newPet.getTypeId(), 1));
 
 		return petMapper.mapToDto(newPet);
 	}
 
+	/**
+	 * Create many pets in JDBC batches, committed in chunks
+	 *
+	 * @param petDTOs
+	 * @return generated ids, in the same order
+	 */
+	@Override
+	public List<Integer> createAll(List<PetDTO> petDTOs) {
+
+		List<Pet> pets = petMapper.mapToEntityList(petDTOs);
+		pets.forEach(pet -> pet.setId(null));
+
+		List<Integer> ids = batchWriter.persistAll(pets, Pet::getId,
+				pet -> new ChangeEvent(Kind.PET, pet.getId(), Operation.CREATE, pet.getVersion()));
+
+		ClinicStats.Delta delta = new ClinicStats.Delta();
+		pets.forEach(pet -> delta.pet(pet.getTypeId(), 1));
+		clinicStats.apply(delta);
+
+		return ids;
+	}
+
 	/**
 	 * 
 	 * @param petDTO
 	 * @return
+	 * @throws PetNotFoundException
 	 */
 	@Override
-	public PetDTO update(PetDTO petDTO) {
+	@Transactional
+	public PetDTO update(PetDTO petDTO) throws PetNotFoundException {
 
-		Pet newPet = petRepository.save(petMapper.mapToEntity(petDTO));
+		LocalDate birthDate = petMapper.stringToDate(petDTO.getBirthDate());
 
-		return petMapper.mapToDto(newPet);
+		int updated = petRepository.updateById(petDTO.getId(), petDTO.getVersion(), petDTO.getName(), petDTO.getTypeId(),
+				petDTO.getOwnerId(), birthDate);
 
+		if (updated == 0) {
+			if (petDTO.getVersion() != null && petRepository.existsById(petDTO.getId()))
+				throw new VersionConflictException("Version " + petDTO.getVersion() + " is not current");
+			throw new PetNotFoundException("Record not found...!");
+		}
+
+		// Read as stored when the birth date was kept, or the version not sent
+		PetDTO updatedPet;
+		if (birthDate == null || petDTO.getVersion() == null) {
+			updatedPet = petRepository.findDtoById(petDTO.getId())
+					.orElseThrow(() -> new PetNotFoundException("Record not found...!"));
+		} else {
+			petDTO.setVersion(petDTO.getVersion() + 1);
+			updatedPet = petDTO;
+		}
+
+		changeOutbox.record(Kind.PET, updatedPet.getId(), Operation.UPDATE, updatedPet.getVersion());
+		clinicStats.recount();
+
+		return updatedPet;
 	}
 
 
@@ -64,11 +136,35 @@ public class PetServiceImpl implements PetService {
 	 * @throws PetNotFoundException
 	 */
 	@Override
-	public void delete(Integer id) throws PetNotFoundException{
+	@Transactional
+	public void delete(Integer id) throws PetNotFoundException {
+		delete(id, null);
+	}
+
+	/**
+	 * Delete a pet by id when its version matches
+	 *
+	 * @param id
+	 * @param version expected version, null for any
+	 * @throws PetNotFoundException
+	 * @throws VersionConflictException
+	 */
+	@Override
+	@Transactional
+	public void delete(Integer id, Integer version) throws PetNotFoundException {
+
+		int deleted = petRepository.deleteOneById(id, version);
 
-		PetDTO pet = findById(id);
+		if (deleted == 0) {
+			if (version != null && petRepository.existsById(id))
+				throw new VersionConflictException("Version " + version + " is not current");
+			throw new PetNotFoundException("Record not found...!");
+		}
 
-		petRepository.delete(this.petMapper.mapToEntity(pet));
+		changeOutbox.record(Kind.PET, id, Operation.DELETE, null);
+		// The visits go with the pet
+		clinicStats.recount();
+		appointmentIndex.releasePets(List.of(id));
 
 	}
 
@@ -78,14 +174,37 @@ public class PetServiceImpl implements PetService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public PetDTO findById(Integer id) throws PetNotFoundException {
 
-		Optional<Pet> pet = petRepository.findById(id);
+		return petRepository.findDtoById(id)
+				.orElseThrow(() -> new PetNotFoundException("Record not found...!"));
+	}
 
-		if ( !pet.isPresent())
-			throw new PetNotFoundException("Record not found...!");
+	/**
+	 * Version of a pet, read without loading it
+	 *
+	 * @param id
+	 * @return
+	 * @throws PetNotFoundException
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Integer findVersion(Integer id) throws PetNotFoundException {
 
-		return this.petMapper.mapToDto(pet.get());
+		return petRepository.findVersionById(id)
+				.orElseThrow(() -> new PetNotFoundException("Record not found...!"));
+	}
+
+	/**
+	 * Version of the whole pets table
+	 *
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public String findTableVersion() {
+		return petRepository.findTableVersion();
 	}
 
 	/**
@@ -94,16 +213,15 @@ public class PetServiceImpl implements PetService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<PetDTO> findByName(String name) {
 
-		List<Pet> pets = petRepository.findByName(name);
+		List<PetDTO> pets = petRepository.findDtoByName(name);
 
-		pets.forEach(pet -> log.info("" + pet));
+		if (log.isDebugEnabled())
+			pets.forEach(pet -> log.debug("{}", pet));
 
-		return pets
-				.stream()
-				.map(this.petMapper::mapToDto)
-				.collect(Collectors.toList());
+		return pets;
 	}
 
 	/**
@@ -112,11 +230,13 @@ public class PetServiceImpl implements PetService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Pet> findByTypeId(int typeId) {
 
 		List<Pet> pets = petRepository.findByTypeId(typeId);
 
-		pets.forEach(pet -> log.info("" + pet));
+		if (log.isDebugEnabled())
+			pets.forEach(pet -> log.debug("{}", pet));
 
 		return pets; 
 	}
@@ -127,11 +247,13 @@ public class PetServiceImpl implements PetService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Pet> findByOwnerId(int ownerId) {
 
 		List<Pet> pets = petRepository.findByOwnerId(ownerId);
 
-		pets.forEach(pet -> log.info("" + pet));
+		if (log.isDebugEnabled())
+			pets.forEach(pet -> log.debug("{}", pet));
 
 		return pets;
 	}
@@ -141,9 +263,63 @@ public class PetServiceImpl implements PetService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Pet> findAll() {
 		//
 		return petRepository.findAll();
 
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Find all pets ordered by id, read as DTOs without loading the entities
+	 *
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<PetDTO> findAllDto() {
+		return petRepository.findAllDto();
+	}
+
+	/**
+	 * Find a page of pets ordered by id
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public KeysetPageDTO<PetDTO> findPage(Integer after, Integer size) {
+
+		int pageSize = KeysetPageDTO.boundedSize(size);
+
+		List<PetDTO> pets = petRepository.findDtoByIdGreaterThan(after == null ? 0 : after, Limit.of(pageSize + 1));
+
+		return KeysetPageDTO.of(pets, pageSize, PetDTO::getId);
+	}
+
+	/**
+	 * Export all pets ordered by id, handing them one by one to the consumer.
+	 * Rows are read as DTOs, so memory does not grow with the table size.
+	 *
+	 * @param consumer
+	 * @return number of exported pets
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public long exportAll(Consumer<PetDTO> consumer) {
+
+		long count = 0;
+
+		try (Stream<PetDTO> pets = petRepository.streamAllDto()) {
+			Iterator<PetDTO> iterator = pets.iterator();
+			while (iterator.hasNext()) {
+				consumer.accept(iterator.next());
+				count++;
+			}
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,92 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.CacheRegionStatsDTO;
+import com.tecsup.petclinic.entities.Specialty;
+import com.tecsup.petclinic.entities.Vet;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Invalidation and statistics of the second-level cache that holds
+ * the reference data : vets, their specialties and pet types.
+ * 
+ * @author jgomezm
+ *
+ */
+@Component
+public class ReferenceDataCache {
+
+	static final String VET_SPECIALTIES = Vet.class.getName() + ".specialties";
+
+	private final SessionFactory sessionFactory;
+
+	public ReferenceDataCache(EntityManagerFactory entityManagerFactory) {
+		this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+	}
+
+	/**
+	 * Evict a vet and its specialties collection
+	 * 
+	 * @param id
+	 */
+	public void evictVet(Integer id) {
+
+		Cache cache = sessionFactory.getCache();
+
+		cache.evictEntityData(Vet.class, id);
+		cache.evictCollectionData(VET_SPECIALTIES, id);
+	}
+
+	/**
+	 * Evict a specialty. The vet_specialties rows are removed by the
+	 * database together with the specialty, so every cached
+	 * Vet.specialties collection may be stale as well.
+	 * 
+	 * @param id
+	 */
+	public void evictSpecialty(Integer id) {
+
+		Cache cache = sessionFactory.getCache();
+
+		cache.evictEntityData(Specialty.class, id);
+		cache.evictCollectionData(VET_SPECIALTIES);
+	}
+
+	/**
+	 * Hit / miss counters of every cache region
+	 * 
+	 * @return
+	 */
+	public List<CacheRegionStatsDTO> statistics() {
+
+		Statistics statistics = sessionFactory.getStatistics();
+
+		return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+				.sorted()
+				.map(region -> toDto(region, statistics.getDomainDataRegionStatistics(region)))
+				.filter(Objects::nonNull)
+				.toList();
+	}
+
+	private CacheRegionStatsDTO toDto(String region, CacheRegionStatistics statistics) {
+
+		if (statistics == null)
+			return null;
+
+		return CacheRegionStatsDTO.builder()
+				.region(region)
+				.hits(statistics.getHitCount())
+				.misses(statistics.getMissCount())
+				.puts(statistics.getPutCount())
+				.build();
+	}
+
+}
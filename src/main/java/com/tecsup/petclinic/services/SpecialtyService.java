@@ -1,5 +1,6 @@
 package com.tecsup.petclinic.services;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.SpecialtyDTO;
 import com.tecsup.petclinic.entities.Specialty;
 import com.tecsup.petclinic.exceptions.SpecialtyNotFoundException;
@@ -60,4 +61,13 @@ public interface SpecialtyService {
 	 * @return
 	 */
 	List<Specialty> findAll();
+
+	/**
+	 * Find a page of specialties ordered by id
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	KeysetPageDTO<SpecialtyDTO> findPage(Integer after, Integer size);
 }
@@ -1,33 +1,51 @@
 package com.tecsup.petclinic.services;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.SpecialtyDTO;
+import com.tecsup.petclinic.entities.ChangeEvent.Kind;
+import com.tecsup.petclinic.entities.ChangeEvent.Operation;
 import com.tecsup.petclinic.entities.Specialty;
 import com.tecsup.petclinic.exceptions.SpecialtyNotFoundException;
 import com.tecsup.petclinic.mapper.SpecialtyMapper;
 import com.tecsup.petclinic.repositories.SpecialtyRepository;
+import com.tecsup.petclinic.repositories.VetRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
- * Service implementation for Specialty entity
+ * Service implementation for Specialty entity. The writes record their
+ * change in the outbox (see ChangeOutbox), in the same transaction, and
+ * increment the version of the vets of the specialty, so their ETags (and the
+ * one of all vets) change with it, recording a VET UPDATE for each of them.
  * 
  * @author jgomezm
  *
  */
 @Service
+@Timed("petclinic.service")
 @Slf4j
 public class SpecialtyServiceImpl implements SpecialtyService {
 
 	SpecialtyRepository specialtyRepository;
+	VetRepository vetRepository;
 	SpecialtyMapper specialtyMapper;
+	ReferenceDataCache referenceDataCache;
+	ChangeOutbox changeOutbox;
 
-	public SpecialtyServiceImpl(SpecialtyRepository specialtyRepository, SpecialtyMapper specialtyMapper) {
+	public SpecialtyServiceImpl(SpecialtyRepository specialtyRepository, VetRepository vetRepository,
+			SpecialtyMapper specialtyMapper, ReferenceDataCache referenceDataCache, ChangeOutbox changeOutbox) {
 		this.specialtyRepository = specialtyRepository;
+		this.vetRepository = vetRepository;
 		this.specialtyMapper = specialtyMapper;
+		this.referenceDataCache = referenceDataCache;
+		this.changeOutbox = changeOutbox;
 	}
 
 	/**
@@ -37,9 +55,11 @@ public class SpecialtyServiceImpl implements SpecialtyService {
 	 * @return
 	 */
 	@Override
+	@Transactional
 	public SpecialtyDTO create(SpecialtyDTO specialtyDTO) {
 
 		Specialty newSpecialty = specialtyRepository.save(specialtyMapper.mapToEntity(specialtyDTO));
+		changeOutbox.record(Kind.SPECIALTY, newSpecialty.getId(), Operation.CREATE, null);
 
 		return specialtyMapper.mapToDto(newSpecialty);
 	}
@@ -51,9 +71,14 @@ public class SpecialtyServiceImpl implements SpecialtyService {
 	 * @return
 	 */
 	@Override
+	@Transactional
 	public SpecialtyDTO update(SpecialtyDTO specialtyDTO) {
 
 		Specialty updatedSpecialty = specialtyRepository.save(specialtyMapper.mapToEntity(specialtyDTO));
+		changeOutbox.record(Kind.SPECIALTY, updatedSpecialty.getId(), Operation.UPDATE, null);
+		updateVets(updatedSpecialty.getId());
+
+		referenceDataCache.evictSpecialty(updatedSpecialty.getId());
 
 		return specialtyMapper.mapToDto(updatedSpecialty);
 
@@ -66,12 +91,28 @@ public class SpecialtyServiceImpl implements SpecialtyService {
 	 * @throws SpecialtyNotFoundException
 	 */
 	@Override
+	@Transactional
 	public void delete(Integer id) throws SpecialtyNotFoundException {
 
 		SpecialtyDTO specialty = findById(id);
 
+		updateVets(id);
 		specialtyRepository.delete(this.specialtyMapper.mapToEntity(specialty));
+		changeOutbox.record(Kind.SPECIALTY, id, Operation.DELETE, null);
+
+		referenceDataCache.evictSpecialty(id);
+
+	}
 
+	// Increment the version of the vets of the specialty and record their change
+	private void updateVets(Integer specialtyId) {
+
+		List<Integer> vetIds = vetRepository.findIdsBySpecialtyId(specialtyId);
+		if (vetIds.isEmpty())
+			return;
+
+		vetRepository.incrementVersionByIdIn(vetIds);
+		changeOutbox.recordAll(Kind.VET, vetIds, Operation.UPDATE);
 	}
 
 	/**
@@ -81,6 +122,7 @@ public class SpecialtyServiceImpl implements SpecialtyService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public SpecialtyDTO findById(Integer id) throws SpecialtyNotFoundException {
 
 		Optional<Specialty> specialty = specialtyRepository.findById(id);
@@ -98,11 +140,13 @@ public class SpecialtyServiceImpl implements SpecialtyService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<SpecialtyDTO> findByName(String name) {
 
 		List<Specialty> specialties = specialtyRepository.findByName(name);
 
-		specialties.forEach(specialty -> log.info("" + specialty));
+		if (log.isDebugEnabled())
+			specialties.forEach(specialty -> log.debug("{}", specialty));
 
 		return specialties
 				.stream()
@@ -116,7 +160,26 @@ public class SpecialtyServiceImpl implements SpecialtyService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Specialty> findAll() {
 		return specialtyRepository.findAll();
 	}
+
+	/**
+	 * Find a page of specialties ordered by id
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public KeysetPageDTO<SpecialtyDTO> findPage(Integer after, Integer size) {
+
+		int pageSize = KeysetPageDTO.boundedSize(size);
+
+		List<Specialty> specialties = specialtyRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0 : after, Limit.of(pageSize + 1));
+
+		return KeysetPageDTO.of(this.specialtyMapper.mapToDtoList(specialties), pageSize, SpecialtyDTO::getId);
+	}
 }
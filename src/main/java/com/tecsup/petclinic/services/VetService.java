@@ -1,10 +1,13 @@
 package com.tecsup.petclinic.services;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.VetDTO;
 import com.tecsup.petclinic.entities.Vet;
 import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.exceptions.VersionConflictException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for Vet entity
@@ -23,12 +26,23 @@ public interface VetService {
 	public VetDTO create(VetDTO vetDTO);
 
 	/**
-	 * Update an existing vet
+	 * Create many vets in JDBC batches
+	 *
+	 * @param vetDTOs
+	 * @return generated ids, in the same order
+	 */
+	List<Integer> createAll(List<VetDTO> vetDTOs);
+
+	/**
+	 * Update an existing vet. When the DTO has a version the update only
+	 * applies if it is still the stored one.
 	 * 
 	 * @param vetDTO
-	 * @return
+	 * @return the vet with its new version
+	 * @throws VetNotFoundException
+	 * @throws VersionConflictException
 	 */
-	VetDTO update(VetDTO vetDTO);
+	VetDTO update(VetDTO vetDTO) throws VetNotFoundException;
 
 	/**
 	 * Delete a vet by id
@@ -38,6 +52,16 @@ public interface VetService {
 	 */
 	void delete(Integer id) throws VetNotFoundException;
 
+	/**
+	 * Delete a vet by id when its version matches
+	 *
+	 * @param id
+	 * @param version expected version, null for any
+	 * @throws VetNotFoundException
+	 * @throws VersionConflictException
+	 */
+	void delete(Integer id, Integer version) throws VetNotFoundException;
+
 	/**
 	 * Find a vet by id
 	 * 
@@ -46,6 +70,23 @@ public interface VetService {
 	 */
 	VetDTO findById(Integer id) throws VetNotFoundException;
 
+	/**
+	 * Version of a vet, read without loading it
+	 *
+	 * @param id
+	 * @return
+	 * @throws VetNotFoundException
+	 */
+	Integer findVersion(Integer id) throws VetNotFoundException;
+
+	/**
+	 * Version of the whole vets table : row count, sum of the ids and sum
+	 * of the versions, e.g. "5.15.0"
+	 *
+	 * @return
+	 */
+	String findTableVersion();
+
 	/**
 	 * Find vets by first name
 	 * 
@@ -68,4 +109,21 @@ public interface VetService {
 	 * @return
 	 */
 	List<Vet> findAll();
+
+	/**
+	 * Find a page of vets ordered by id
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	KeysetPageDTO<VetDTO> findPage(Integer after, Integer size);
+
+	/**
+	 * Export all vets ordered by id, handing them one by one to the consumer
+	 *
+	 * @param consumer
+	 * @return number of exported vets
+	 */
+	long exportAll(Consumer<VetDTO> consumer);
 }
@@ -1,16 +1,28 @@
 package com.tecsup.petclinic.services;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.VetDTO;
+import com.tecsup.petclinic.entities.ChangeEvent;
+import com.tecsup.petclinic.entities.ChangeEvent.Kind;
+import com.tecsup.petclinic.entities.ChangeEvent.Operation;
 import com.tecsup.petclinic.entities.Vet;
 import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.exceptions.VersionConflictException;
 import com.tecsup.petclinic.mapper.VetMapper;
 import com.tecsup.petclinic.repositories.VetRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service implementation for Vet entity
@@ -19,15 +31,31 @@ import java.util.stream.Collectors;
  *
  */
 @Service
+@Timed("petclinic.service")
 @Slf4j
 public class VetServiceImpl implements VetService {
 
+	// Rows exported between persistence context clears
+	private static final int EXPORT_CLEAR_INTERVAL = 500;
+
 	VetRepository vetRepository;
 	VetMapper vetMapper;
+	EntityManager entityManager;
+	BatchWriter batchWriter;
+	ReferenceDataCache referenceDataCache;
+	ClinicStats clinicStats;
+	ChangeOutbox changeOutbox;
 
-	public VetServiceImpl(VetRepository vetRepository, VetMapper vetMapper) {
+	public VetServiceImpl(VetRepository vetRepository, VetMapper vetMapper, EntityManager entityManager,
+			BatchWriter batchWriter, ReferenceDataCache referenceDataCache, ClinicStats clinicStats,
+			ChangeOutbox changeOutbox) {
 		this.vetRepository = vetRepository;
 		this.vetMapper = vetMapper;
+		this.entityManager = entityManager;
+		this.batchWriter = batchWriter;
+		this.referenceDataCache = referenceDataCache;
+		this.clinicStats = clinicStats;
+		this.changeOutbox = changeOutbox;
 	}
 
 	/**
@@ -37,26 +65,60 @@ public class VetServiceImpl implements VetService {
 	 * @return
 	 */
 	@Override
+	@Transactional
 	public VetDTO create(VetDTO vetDTO) {
 
 		Vet newVet = vetRepository.save(vetMapper.mapToEntity(vetDTO));
+		changeOutbox.record(Kind.VET, newVet.getId(), Operation.CREATE, newVet.getVersion());
 
 		return vetMapper.mapToDto(newVet);
 	}
 
+	/**
+	 * Create many vets in JDBC batches, committed in chunks
+	 *
+	 * @param vetDTOs
+	 * @return generated ids, in the same order
+	 */
+	@Override
+	public List<Integer> createAll(List<VetDTO> vetDTOs) {
+
+		List<Vet> vets = vetMapper.mapToEntityList(vetDTOs);
+		vets.forEach(vet -> vet.setId(null));
+
+		return batchWriter.persistAll(vets, Vet::getId,
+				vet -> new ChangeEvent(Kind.VET, vet.getId(), Operation.CREATE, vet.getVersion()));
+	}
+
 	/**
 	 * Update an existing vet
 	 * 
 	 * @param vetDTO
 	 * @return
+	 * @throws VetNotFoundException
 	 */
 	@Override
-	public VetDTO update(VetDTO vetDTO) {
+	@Transactional
+	public VetDTO update(VetDTO vetDTO) throws VetNotFoundException {
+
+		int updated = vetRepository.updateById(vetDTO.getId(), vetDTO.getVersion(), vetDTO.getFirstName(), vetDTO.getLastName());
+
+		if (updated == 0) {
+			if (vetDTO.getVersion() != null && vetRepository.existsById(vetDTO.getId()))
+				throw new VersionConflictException("Version " + vetDTO.getVersion() + " is not current");
+			throw new VetNotFoundException("Record not found...!");
+		}
+
+		referenceDataCache.evictVet(vetDTO.getId());
 
-		Vet updatedVet = vetRepository.save(vetMapper.mapToEntity(vetDTO));
+		if (vetDTO.getVersion() != null)
+			vetDTO.setVersion(vetDTO.getVersion() + 1);
+		else
+			vetDTO.setVersion(vetRepository.findVersionById(vetDTO.getId()).orElse(null));
 
-		return vetMapper.mapToDto(updatedVet);
+		changeOutbox.record(Kind.VET, vetDTO.getId(), Operation.UPDATE, vetDTO.getVersion());
 
+		return vetDTO;
 	}
 
 	/**
@@ -66,21 +128,47 @@ public class VetServiceImpl implements VetService {
 	 * @throws VetNotFoundException
 	 */
 	@Override
+	@Transactional
 	public void delete(Integer id) throws VetNotFoundException {
+		delete(id, null);
+	}
 
-		VetDTO vet = findById(id);
+	/**
+	 * Delete a vet by id when its version matches
+	 *
+	 * @param id
+	 * @param version expected version, null for any
+	 * @throws VetNotFoundException
+	 * @throws VersionConflictException
+	 */
+	@Override
+	@Transactional
+	public void delete(Integer id, Integer version) throws VetNotFoundException {
+
+		int deleted = vetRepository.deleteOneById(id, version);
+
+		if (deleted == 0) {
+			if (version != null && vetRepository.existsById(id))
+				throw new VersionConflictException("Version " + version + " is not current");
+			throw new VetNotFoundException("Record not found...!");
+		}
 
-		vetRepository.delete(this.vetMapper.mapToEntity(vet));
+		changeOutbox.record(Kind.VET, id, Operation.DELETE, null);
+		referenceDataCache.evictVet(id);
+		// The visits of the vet are left without one
+		clinicStats.recount();
 
 	}
 
 	/**
-	 * Find a vet by id
+	 * Find a vet by id. The vet and its specialties are read from the
+	 * second-level cache when present, so no fetch join here.
 	 * 
 	 * @param id
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public VetDTO findById(Integer id) throws VetNotFoundException {
 
 		Optional<Vet> vet = vetRepository.findById(id);
@@ -91,6 +179,32 @@ public class VetServiceImpl implements VetService {
 		return this.vetMapper.mapToDto(vet.get());
 	}
 
+	/**
+	 * Version of a vet, read without loading it
+	 *
+	 * @param id
+	 * @return
+	 * @throws VetNotFoundException
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Integer findVersion(Integer id) throws VetNotFoundException {
+
+		return vetRepository.findVersionById(id)
+				.orElseThrow(() -> new VetNotFoundException("Record not found...!"));
+	}
+
+	/**
+	 * Version of the whole vets table
+	 *
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public String findTableVersion() {
+		return vetRepository.findTableVersion();
+	}
+
 	/**
 	 * Find vets by first name
 	 * 
@@ -98,11 +212,13 @@ public class VetServiceImpl implements VetService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<VetDTO> findByFirstName(String firstName) {
 
 		List<Vet> vets = vetRepository.findByFirstName(firstName);
 
-		vets.forEach(vet -> log.info("" + vet));
+		if (log.isDebugEnabled())
+			vets.forEach(vet -> log.debug("{}", vet));
 
 		return vets
 				.stream()
@@ -117,11 +233,13 @@ public class VetServiceImpl implements VetService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Vet> findByLastName(String lastName) {
 
 		List<Vet> vets = vetRepository.findByLastName(lastName);
 
-		vets.forEach(vet -> log.info("" + vet));
+		if (log.isDebugEnabled())
+			vets.forEach(vet -> log.debug("{}", vet));
 
 		return vets;
 	}
@@ -132,7 +250,54 @@ public class VetServiceImpl implements VetService {
 	 * @return
 	 */
 	@Override
+	@Transactional(readOnly = true)
 	public List<Vet> findAll() {
 		return vetRepository.findAll();
 	}
+
+	/**
+	 * Find a page of vets ordered by id
+	 *
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public KeysetPageDTO<VetDTO> findPage(Integer after, Integer size) {
+
+		int pageSize = KeysetPageDTO.boundedSize(size);
+
+		List<Integer> ids = vetRepository.findIdsAfter(after == null ? 0 : after, Limit.of(pageSize + 1));
+
+		List<Vet> vets = ids.isEmpty() ? List.of() : vetRepository.findByIdInOrderByIdAsc(ids);
+
+		return KeysetPageDTO.of(this.vetMapper.mapToDtoList(vets), pageSize, VetDTO::getId);
+	}
+
+	/**
+	 * Export all vets ordered by id, handing them one by one to the consumer.
+	 * The persistence context is cleared periodically so memory does not
+	 * grow with the table size.
+	 *
+	 * @param consumer
+	 * @return number of exported vets
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public long exportAll(Consumer<VetDTO> consumer) {
+
+		long count = 0;
+
+		try (Stream<Vet> vets = vetRepository.streamAll()) {
+			Iterator<Vet> iterator = vets.iterator();
+			while (iterator.hasNext()) {
+				consumer.accept(this.vetMapper.mapToDto(iterator.next()));
+				if (++count % EXPORT_CLEAR_INTERVAL == 0)
+					entityManager.clear();
+			}
+		}
+
+		return count;
+	}
 }
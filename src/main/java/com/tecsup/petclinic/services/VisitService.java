@@ -0,0 +1,70 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
+import com.tecsup.petclinic.dtos.VisitDTO;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.exceptions.VisitNotFoundException;
+
+import java.time.LocalDate;
+
+/**
+ * Service interface for Visit entity
+ *
+ * @author jgomezm
+ *
+ */
+public interface VisitService {
+
+	/**
+	 * Create a new visit
+	 *
+	 * @param visitDTO
+	 * @return
+	 * @throws PetNotFoundException
+	 * @throws VetNotFoundException
+	 */
+	VisitDTO create(VisitDTO visitDTO) throws PetNotFoundException, VetNotFoundException;
+
+	/**
+	 * Find a visit by id
+	 *
+	 * @param id
+	 * @return
+	 * @throws VisitNotFoundException
+	 */
+	VisitDTO findById(Long id) throws VisitNotFoundException;
+
+	/**
+	 * Find a page of the visits of a pet ordered by id
+	 *
+	 * @param petId
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	KeysetPageDTO<VisitDTO> findByPet(Integer petId, Long after, Integer size);
+
+	/**
+	 * Find a page of the visits of a vet ordered by id
+	 *
+	 * @param vetId
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	KeysetPageDTO<VisitDTO> findByVet(Integer vetId, Long after, Integer size);
+
+	/**
+	 * Find a page of the visits between two dates, both included, ordered by
+	 * date and id
+	 *
+	 * @param from
+	 * @param to
+	 * @param after cursor returned as next by the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	KeysetPageDTO<VisitDTO> findByDateRange(LocalDate from, LocalDate to, String after, Integer size);
+
+}
@@ -0,0 +1,198 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
+import com.tecsup.petclinic.dtos.VisitDTO;
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.exceptions.InvalidCursorException;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.exceptions.SlotNotAvailableException;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.exceptions.VisitNotFoundException;
+import com.tecsup.petclinic.mapper.VisitMapper;
+import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.repositories.VetRepository;
+import com.tecsup.petclinic.repositories.VisitRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service implementation for Visit entity
+ *
+ * Every lookup is keyset paginated on one of the visits indexes, so the
+ * cost of a page does not depend on the size of the visit history.
+ *
+ * @author jgomezm
+ *
+ */
+@Service
+@Timed("petclinic.service")
+@Slf4j
+public class VisitServiceImpl implements VisitService {
+
+	// Separates the date and the id in the cursor of a date range page
+	private static final String CURSOR_SEPARATOR = "_";
+
+	VisitRepository visitRepository;
+	PetRepository petRepository;
+	VetRepository vetRepository;
+	VisitMapper visitMapper;
+	AppointmentIndex appointmentIndex;
+	ClinicStats clinicStats;
+
+	public VisitServiceImpl(VisitRepository visitRepository, PetRepository petRepository,
+			VetRepository vetRepository, VisitMapper visitMapper, AppointmentIndex appointmentIndex,
+			ClinicStats clinicStats) {
+		this.visitRepository = visitRepository;
+		this.petRepository = petRepository;
+		this.vetRepository = vetRepository;
+		this.visitMapper = visitMapper;
+		this.appointmentIndex = appointmentIndex;
+		this.clinicStats = clinicStats;
+	}
+
+	/**
+	 * Create a new visit, dated today when no date is given. A visit with a
+	 * time takes that slot of the vet agenda, without the checks of
+	 * {@link AppointmentService#book(Integer, VisitDTO)}.
+	 *
+	 * @param visitDTO
+	 * @return
+	 * @throws PetNotFoundException
+	 * @throws VetNotFoundException
+	 * @throws SlotNotAvailableException
+	 */
+	@Override
+	public VisitDTO create(VisitDTO visitDTO) throws PetNotFoundException, VetNotFoundException {
+
+		if (visitDTO.getPetId() == null || !petRepository.existsById(visitDTO.getPetId()))
+			throw new PetNotFoundException("Record not found...!");
+
+		if (visitDTO.getVetId() != null && !vetRepository.existsById(visitDTO.getVetId()))
+			throw new VetNotFoundException("Record not found...!");
+
+		Visit visit = visitMapper.mapToEntity(visitDTO);
+		visit.setId(null);
+		if (visit.getVisitDate() == null)
+			visit.setVisitDate(LocalDate.now());
+
+		if (visit.getVisitTime() == null || visit.getVetId() == null) {
+			visit = visitRepository.save(visit);
+			clinicStats.apply(new ClinicStats.Delta().visit(visit.getVetId(), 1, visit.getCost()));
+			return visitMapper.mapToDto(visit);
+		}
+
+		try {
+			visit = visitRepository.saveAndFlush(visit);
+		} catch (DataIntegrityViolationException e) {
+			throw new SlotNotAvailableException("Slot " + visit.getVisitDate() + "T" + visit.getVisitTime()
+					+ " of vet " + visit.getVetId() + " is booked");
+		} finally {
+			appointmentIndex.evict(visit.getVetId());
+		}
+
+		clinicStats.apply(new ClinicStats.Delta().visit(visit.getVetId(), 1, visit.getCost()));
+
+		return visitMapper.mapToDto(visit);
+	}
+
+	/**
+	 * Find a visit by id
+	 *
+	 * @param id
+	 * @return
+	 * @throws VisitNotFoundException
+	 */
+	@Override
+	public VisitDTO findById(Long id) throws VisitNotFoundException {
+
+		Optional<Visit> visit = visitRepository.findById(id);
+
+		if (!visit.isPresent())
+			throw new VisitNotFoundException("Record not found...!");
+
+		return visitMapper.mapToDto(visit.get());
+	}
+
+	/**
+	 * Find a page of the visits of a pet ordered by id
+	 *
+	 * @param petId
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	@Override
+	public KeysetPageDTO<VisitDTO> findByPet(Integer petId, Long after, Integer size) {
+
+		int pageSize = KeysetPageDTO.boundedSize(size);
+
+		List<Visit> visits = visitRepository.findByPetIdAndIdGreaterThanOrderByIdAsc(petId,
+				after == null ? 0L : after, Limit.of(pageSize + 1));
+
+		return KeysetPageDTO.of(visitMapper.mapToDtoList(visits), pageSize, VisitDTO::getId);
+	}
+
+	/**
+	 * Find a page of the visits of a vet ordered by id
+	 *
+	 * @param vetId
+	 * @param after last id of the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	@Override
+	public KeysetPageDTO<VisitDTO> findByVet(Integer vetId, Long after, Integer size) {
+
+		int pageSize = KeysetPageDTO.boundedSize(size);
+
+		List<Visit> visits = visitRepository.findByVetIdAndIdGreaterThanOrderByIdAsc(vetId,
+				after == null ? 0L : after, Limit.of(pageSize + 1));
+
+		return KeysetPageDTO.of(visitMapper.mapToDtoList(visits), pageSize, VisitDTO::getId);
+	}
+
+	/**
+	 * Find a page of the visits between two dates, both included, ordered by
+	 * date and id. The cursor is the date and id of the last visit of the
+	 * previous page, as yyyy-MM-dd_id.
+	 *
+	 * @param from
+	 * @param to
+	 * @param after cursor returned as next by the previous page, null for the first page
+	 * @param size
+	 * @return
+	 */
+	@Override
+	public KeysetPageDTO<VisitDTO> findByDateRange(LocalDate from, LocalDate to, String after, Integer size) {
+
+		int pageSize = KeysetPageDTO.boundedSize(size);
+
+		LocalDate afterDate = from;
+		long afterId = 0L;
+
+		if (after != null) {
+			int separator = after.lastIndexOf(CURSOR_SEPARATOR);
+			try {
+				afterDate = LocalDate.parse(after.substring(0, Math.max(separator, 0)));
+				afterId = Long.parseLong(after.substring(separator + 1));
+			} catch (DateTimeParseException | NumberFormatException e) {
+				throw new InvalidCursorException("Invalid cursor: " + after, e);
+			}
+		}
+
+		List<Visit> visits = visitRepository.findByVisitDateBetweenAfter(from, to, afterDate, afterId,
+				Limit.of(pageSize + 1));
+
+		return KeysetPageDTO.of(visitMapper.mapToDtoList(visits), pageSize,
+				visit -> visit.getVisitDate() + CURSOR_SEPARATOR + visit.getId());
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.tecsup.petclinic.webs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit of one endpoint, adjusted from the latency of its
+ * requests (AIMD) : one more request in progress after each fast one that
+ * used the limit, a share less after each slow or refused one.
+ *
+ * A request is slow over <code>tolerance</code> times the lowest latency
+ * seen in the last two windows of <code>window</code> requests, and never
+ * below <code>minTargetNanos</code>. The lowest latency follows the
+ * endpoint when its data grows or shrinks.
+ *
+ * @author jgomezm
+ *
+ */
+public class AdaptiveLimit {
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	// Share of the limit kept after a slow request
+	private final double backoff;
+
+	private final double tolerance;
+
+	private final long minTargetNanos;
+
+	private final int window;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private volatile double limit;
+
+	// Lowest latency of the current and the previous window
+	private long windowMin = Long.MAX_VALUE;
+
+	private long previousMin = Long.MAX_VALUE;
+
+	private int samples;
+
+	public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double backoff, double tolerance,
+			long minTargetNanos, int window) {
+		this.minLimit = Math.max(minLimit, 1);
+		this.maxLimit = Math.max(maxLimit, this.minLimit);
+		this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+		this.backoff = backoff;
+		this.tolerance = tolerance;
+		this.minTargetNanos = minTargetNanos;
+		this.window = Math.max(window, 1);
+	}
+
+	/**
+	 * Take a place for a request, without waiting
+	 *
+	 * @return false when the limit is reached, the request is to be refused
+	 */
+	public boolean tryAcquire() {
+
+		int current;
+		do {
+			current = inFlight.get();
+			if (current >= (int) limit)
+				return false;
+		} while (!inFlight.compareAndSet(current, current + 1));
+
+		return true;
+	}
+
+	/**
+	 * Give the place back once the request is done, and adjust the limit
+	 *
+	 * @param latencyNanos
+	 * @param dropped      the request was refused further on (database busy)
+	 */
+	public synchronized void release(long latencyNanos, boolean dropped) {
+
+		int current = inFlight.getAndDecrement();
+
+		windowMin = Math.min(windowMin, latencyNanos);
+		long target = Math.max(minTargetNanos, (long) (tolerance * Math.min(windowMin, previousMin)));
+		if (++samples >= window) {
+			previousMin = windowMin;
+			windowMin = Long.MAX_VALUE;
+			samples = 0;
+		}
+
+		if (dropped || latencyNanos > target)
+			limit = Math.max(minLimit, limit * backoff);
+		// Only grow when the limit was in use, not on an idle endpoint
+		else if (current * 2 >= limit)
+			limit = Math.min(maxLimit, limit + 1);
+	}
+
+	/**
+	 * Current limit
+	 *
+	 * @return
+	 */
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * Requests in progress
+	 *
+	 * @return
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+}
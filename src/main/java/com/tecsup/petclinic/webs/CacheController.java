@@ -0,0 +1,43 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.dtos.CacheRegionStatsDTO;
+import com.tecsup.petclinic.services.ReferenceDataCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller for the second-level cache statistics
+ * 
+ * @author jgomezm
+ *
+ */
+@RestController
+public class CacheController {
+
+	private ReferenceDataCache referenceDataCache;
+
+	/**
+	 * Constructor with dependency injection
+	 * 
+	 * @param referenceDataCache
+	 */
+	public CacheController(ReferenceDataCache referenceDataCache) {
+		this.referenceDataCache = referenceDataCache;
+	}
+
+	/**
+	 * Get the hit / miss counters of every cache region
+	 *
+	 * @return
+	 */
+	@GetMapping(value = "/cache/stats")
+	public ResponseEntity<List<CacheRegionStatsDTO>> findCacheStats() {
+
+		return ResponseEntity.ok(referenceDataCache.statistics());
+
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.dtos.ChangeFeedDTO;
+import com.tecsup.petclinic.services.ChangeService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST Controller for the feed of the changes to pets, owners, vets and
+ * specialties
+ *
+ * @author jgomezm
+ *
+ */
+@RestController
+public class ChangeController {
+
+	private ChangeService changeService;
+
+	/**
+	 * Constructor with dependency injection
+	 *
+	 * @param changeService
+	 */
+	public ChangeController(ChangeService changeService) {
+		this.changeService = changeService;
+	}
+
+	/**
+	 * Get the changes after a cursor, to poll instead of reading whole lists.
+	 * Send next back as since, it is also the cursor of an empty page.
+	 *
+	 * @param since cursor returned as next by the previous page
+	 * @param size
+	 * @return
+	 */
+	@GetMapping(value = "/changes")
+	public ResponseEntity<ChangeFeedDTO> findChanges(@RequestParam(required = false) Long since,
+			@RequestParam(required = false) Integer size) {
+
+		return ResponseEntity.ok(changeService.findChanges(since, size));
+
+	}
+
+}
@@ -0,0 +1,158 @@
+package com.tecsup.petclinic.webs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Load shedding per endpoint (method and pattern, as in the metrics) : each
+ * one has its own {@link AdaptiveLimit} of requests in progress. Over it a
+ * request is answered 503 Service Unavailable with Retry-After at once,
+ * before using a database connection.
+ *
+ * Slow endpoints, such as the unpaginated lists under load, see their limit
+ * shrink and cannot take all the threads and connections, so the point
+ * lookups keep theirs. Refused requests are counted in
+ * petclinic.request.shed, the limits are the petclinic.request.limit gauges.
+ * Disabled with petclinic.concurrency.enabled=false.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+	private static final String START = ConcurrencyLimitInterceptor.class.getName() + ".start";
+
+	private static final String LIMIT = ConcurrencyLimitInterceptor.class.getName() + ".limit";
+
+	private final MeterRegistry meterRegistry;
+
+	private final boolean enabled;
+
+	private final int initialLimit;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double backoff;
+
+	private final double tolerance;
+
+	private final long minLatencyNanos;
+
+	private final int window;
+
+	// Seconds the client should wait before retrying
+	private final String retryAfter;
+
+	// Limits by endpoint : "GET /pets"
+	private final Map<String, AdaptiveLimit> limits = new ConcurrentHashMap<>();
+
+	public ConcurrencyLimitInterceptor(MeterRegistry meterRegistry,
+			@Value("${petclinic.concurrency.enabled:true}") boolean enabled,
+			@Value("${petclinic.concurrency.initial-limit:20}") int initialLimit,
+			@Value("${petclinic.concurrency.min-limit:1}") int minLimit,
+			@Value("${petclinic.concurrency.max-limit:50}") int maxLimit,
+			@Value("${petclinic.concurrency.backoff:0.9}") double backoff,
+			@Value("${petclinic.concurrency.tolerance:2.0}") double tolerance,
+			@Value("${petclinic.concurrency.min-latency-ms:50}") long minLatencyMillis,
+			@Value("${petclinic.concurrency.window:100}") int window,
+			@Value("${petclinic.concurrency.retry-after-s:1}") int retryAfterSeconds) {
+		this.meterRegistry = meterRegistry;
+		this.enabled = enabled;
+		this.initialLimit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoff = backoff;
+		this.tolerance = tolerance;
+		this.minLatencyNanos = minLatencyMillis * 1_000_000;
+		this.window = window;
+		this.retryAfter = String.valueOf(retryAfterSeconds);
+	}
+
+	/**
+	 * Limit of an endpoint, created on first use
+	 *
+	 * @param method
+	 * @param uri    endpoint pattern : /pets/{id}
+	 * @return
+	 */
+	public AdaptiveLimit getLimit(String method, String uri) {
+		return limits.computeIfAbsent(method + " " + uri, endpoint -> newLimit(method, uri));
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+		if (!enabled || !(handler instanceof HandlerMethod))
+			return true;
+
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+		AdaptiveLimit limit = getLimit(request.getMethod(), uri);
+
+		if (!limit.tryAcquire()) {
+			log.debug("Shed method={} uri={} limit={}", request.getMethod(), uri, limit.getLimit());
+			Counter.builder("petclinic.request.shed")
+					.description("Requests refused over the concurrency limit of their endpoint")
+					.tag("method", request.getMethod())
+					.tag("uri", uri)
+					.register(meterRegistry)
+					.increment();
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+			return false;
+		}
+
+		request.setAttribute(START, System.nanoTime());
+		request.setAttribute(LIMIT, limit);
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+
+		if (!(request.getAttribute(LIMIT) instanceof AdaptiveLimit limit))
+			return;
+
+		long latency = System.nanoTime() - (Long) request.getAttribute(START);
+		limit.release(latency, response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value());
+	}
+
+	private AdaptiveLimit newLimit(String method, String uri) {
+
+		AdaptiveLimit limit = new AdaptiveLimit(initialLimit, minLimit, maxLimit, backoff, tolerance,
+				minLatencyNanos, window);
+
+		Gauge.builder("petclinic.request.limit", limit, AdaptiveLimit::getLimit)
+				.description("Requests in progress allowed on an endpoint")
+				.tag("method", method)
+				.tag("uri", uri)
+				.register(meterRegistry);
+		Gauge.builder("petclinic.request.in_flight", limit, AdaptiveLimit::getInFlight)
+				.description("Requests in progress on an endpoint")
+				.tag("method", method)
+				.tag("uri", uri)
+				.register(meterRegistry);
+
+		return limit;
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.exceptions.DatabaseBusyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Answers 503 Service Unavailable, with Retry-After, when the database
+ * admission control refused a connection. Any other data access error
+ * is left to the default handling.
+ *
+ * @author jgomezm
+ *
+ */
+@RestControllerAdvice
+@Slf4j
+public class DatabaseBusyAdvice {
+
+	// Seconds the client should wait before retrying
+	private static final String RETRY_AFTER = "1";
+
+	@ExceptionHandler({ TransactionException.class, DataAccessException.class })
+	ResponseEntity<Void> databaseBusy(RuntimeException e) {
+
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof DatabaseBusyException) {
+				log.debug("Database busy : {}", cause.getMessage());
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER)
+						.build();
+			}
+		}
+
+		throw e;
+	}
+
+}
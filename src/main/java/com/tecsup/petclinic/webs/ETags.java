@@ -0,0 +1,143 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.exceptions.VersionConflictException;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Strong ETags built from the version column : version 3 is "3".
+ * A whole table is tagged with its row count, sum of the ids and sum of
+ * the versions ("5.15.0"), so a conditional GET can be answered from a
+ * cheap query instead of loading the rows. The sum of the ids, not the
+ * highest one, changes when a row is deleted and another one inserted
+ * below the highest id (ids are reserved in blocks per instance).
+ *
+ * @author jgomezm
+ *
+ */
+public final class ETags {
+
+	private ETags() {
+	}
+
+	/**
+	 * ETag of a record version
+	 *
+	 * @param version
+	 * @return null when the version is unknown
+	 */
+	public static String of(Integer version) {
+		return version == null ? null : "\"" + version + "\"";
+	}
+
+	/**
+	 * ETag of a whole table
+	 *
+	 * @param tableVersion as returned by the repositories findTableVersion()
+	 * @return
+	 */
+	public static String ofTable(String tableVersion) {
+		return "\"" + tableVersion + "\"";
+	}
+
+	/**
+	 * ETag of a response made of several tables, e.g. the owners with
+	 * their pets
+	 *
+	 * @param tableVersions one per table, always in the same order
+	 * @return
+	 */
+	public static String ofTables(String... tableVersions) {
+		return ofTable(String.join("-", tableVersions));
+	}
+
+	/**
+	 * ETag of a whole table, computed from all its rows. Same value as
+	 * {@link #ofTable(String)} with the table version of the same rows.
+	 *
+	 * @param rows
+	 * @param id
+	 * @param version
+	 * @return
+	 */
+	public static <T> String ofTable(List<T> rows, Function<T, ? extends Number> id, Function<T, Integer> version) {
+		return ofTable(tableVersion(rows, id, version));
+	}
+
+	/**
+	 * Table version computed from all its rows, same value as the
+	 * repositories findTableVersion()
+	 *
+	 * @param rows
+	 * @param id
+	 * @param version
+	 * @return
+	 */
+	public static <T> String tableVersion(List<T> rows, Function<T, ? extends Number> id, Function<T, Integer> version) {
+
+		long ids = 0;
+		long versions = 0;
+
+		for (T row : rows) {
+			Number rowId = id.apply(row);
+			Integer rowVersion = version.apply(row);
+			if (rowId != null)
+				ids += rowId.longValue();
+			if (rowVersion != null)
+				versions += rowVersion;
+		}
+
+		return rows.size() + "." + ids + "." + versions;
+	}
+
+	/**
+	 * Whether an If-None-Match header matches the ETag, so the client copy
+	 * is current and 304 Not Modified can be answered. Uses the weak
+	 * comparison of RFC 9110 : W/"3" matches "3".
+	 *
+	 * @param ifNoneMatch
+	 * @param eTag
+	 * @return
+	 */
+	public static boolean matches(String ifNoneMatch, String eTag) {
+
+		if (ifNoneMatch == null || eTag == null)
+			return false;
+
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/"))
+				tag = tag.substring(2);
+			if (tag.equals("*") || tag.equals(eTag))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Version expected by an If-Match header, null when there is no
+	 * header or it is * (any version)
+	 *
+	 * @param ifMatch
+	 * @return
+	 * @throws VersionConflictException when the header is not an ETag of ours
+	 */
+	public static Integer version(String ifMatch) {
+
+		if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*"))
+			return null;
+
+		String tag = ifMatch.trim();
+		try {
+			if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\""))
+				return Integer.valueOf(tag.substring(1, tag.length() - 1));
+		} catch (NumberFormatException e) {
+			// not one of our ETags
+		}
+
+		// Weak or unknown ETags never match (RFC 9110, strong comparison)
+		throw new VersionConflictException("If-Match does not match: " + ifMatch);
+	}
+
+}
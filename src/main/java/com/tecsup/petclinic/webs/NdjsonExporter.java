@@ -0,0 +1,90 @@
+package com.tecsup.petclinic.webs;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes an export as newline-delimited JSON straight to the response,
+ * one record per line, without building the whole list in memory.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class NdjsonExporter {
+
+	public static final String FORMAT = "ndjson";
+
+	// Records written between flushes of the response
+	private static final int FLUSH_INTERVAL = 100;
+
+	private final ObjectMapper objectMapper;
+
+	private final ObjectWriter writer;
+
+	public NdjsonExporter(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+		this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	/**
+	 * Run the export and write each record it produces to the response.
+	 * The first record is flushed right away so the client gets the first
+	 * byte before the query has finished.
+	 *
+	 * @param format requested format, only ndjson is supported
+	 * @param response
+	 * @param export   export to run, receives the record consumer and returns the count
+	 * @throws IOException
+	 */
+	public <T> void export(String format, HttpServletResponse response, Function<Consumer<T>, Long> export)
+			throws IOException {
+
+		if (!FORMAT.equalsIgnoreCase(format)) {
+			response.sendError(HttpStatus.BAD_REQUEST.value(), "Unsupported export format: " + format);
+			return;
+		}
+
+		response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+			generator.setRootValueSeparator(null);
+
+			long count = export.apply(new Consumer<T>() {
+
+				private long written = 0;
+
+				@Override
+				public void accept(T item) {
+					try {
+						writer.writeValue(generator, item);
+						generator.writeRaw('\n');
+						if (++written == 1 || written % FLUSH_INTERVAL == 0)
+							generator.flush();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+
+			RequestLogInterceptor.recordCount(count);
+			log.debug("Exported {} records", count);
+		}
+	}
+
+}
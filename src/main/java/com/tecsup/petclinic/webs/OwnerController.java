@@ -1,8 +1,14 @@
 package com.tecsup.petclinic.webs;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.mapper.OwnerMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,14 +17,18 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.tecsup.petclinic.entities.Owner;
 import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
 import com.tecsup.petclinic.services.OwnerService;
+import com.tecsup.petclinic.services.PetService;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST Controller for Owner entity
@@ -30,38 +40,132 @@ import java.util.List;
 @Slf4j
 public class OwnerController {
 
+	// Value of include to get each owner with its pets
+	static final String INCLUDE_PETS = "pets";
+
 	private OwnerService ownerService;
 
+	private PetService petService;
+
 	private OwnerMapper mapper;
 
+	private NdjsonExporter exporter;
+
+	// Cache-Control of the owners responses, private : owners are personal data
+	private CacheControl cacheControl;
+
 	/**
 	 * Constructor with dependency injection
 	 * 
 	 * @param ownerService
+	 * @param petService
 	 * @param mapper
+	 * @param exporter
+	 * @param maxAge seconds a client may reuse a response without revalidating it
 	 */
-	public OwnerController(OwnerService ownerService, OwnerMapper mapper) {
+	public OwnerController(OwnerService ownerService, PetService petService, OwnerMapper mapper,
+			NdjsonExporter exporter, @Value("${petclinic.http.max-age.owners:0}") long maxAge) {
 		this.ownerService = ownerService;
+		this.petService = petService;
 		this.mapper = mapper;
+		this.exporter = exporter;
+		this.cacheControl = (maxAge > 0 ? CacheControl.maxAge(maxAge, TimeUnit.SECONDS).mustRevalidate()
+				: CacheControl.noCache()).cachePrivate();
 	}
 
 	/**
-	 * Get all owners
+	 * Get all owners. With If-None-Match the table version is checked first and
+	 * 304 Not Modified answered without loading the owners when it did not change.
+	 * With include=pets each owner comes with its pets, read in a second query.
 	 *
+	 * @param include pets, or nothing for the owners alone
+	 * @param ifNoneMatch
 	 * @return
 	 */
 	@GetMapping(value = "/owners")
-	public ResponseEntity<List<OwnerDTO>> findAllOwners() {
+	public ResponseEntity<List<OwnerDTO>> findAllOwners(@RequestParam(required = false) String include,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+		if (include != null && !INCLUDE_PETS.equals(include))
+			return ResponseEntity.badRequest().build();
+
+		boolean withPets = include != null;
+
+		if (ifNoneMatch != null) {
+			String eTag = withPets ? ETags.ofTables(ownerService.findTableVersion(), petService.findTableVersion())
+					: ETags.ofTable(ownerService.findTableVersion());
+			if (ETags.matches(ifNoneMatch, eTag))
+				return notModified(eTag);
+		}
 
-		List<Owner> owners = ownerService.findAll();
-		log.info("owners: " + owners);
-		owners.forEach(item -> log.info("Owner >>  {} ", item));
+		List<OwnerDTO> ownersDTO = withPets ? ownerService.findAllWithPets() : ownerService.findAllDto();
+		if (log.isDebugEnabled())
+			ownersDTO.forEach(item -> log.debug("OwnerDTO >>  {} ", item));
+
+		String ownersVersion = ETags.tableVersion(ownersDTO, OwnerDTO::getId, OwnerDTO::getVersion);
+		String eTag = withPets
+				? ETags.ofTables(ownersVersion, ETags.tableVersion(
+						ownersDTO.stream().flatMap(owner -> owner.getPets().stream()).toList(),
+						PetDTO::getId, PetDTO::getVersion))
+				: ETags.ofTable(ownersVersion);
+
+		return ResponseEntity.ok()
+				.eTag(eTag)
+				.cacheControl(cacheControl)
+				.body(ownersDTO);
+
+	}
+
+	/**
+	 * Search owners by the start or a close spelling of their names, city
+	 * or telephone, e.g. /owners/search?q=mad dav
+	 *
+	 * @param q
+	 * @param size
+	 * @return best matches first
+	 */
+	@GetMapping(value = "/owners/search")
+	public ResponseEntity<List<OwnerDTO>> search(@RequestParam String q, @RequestParam(required = false) Integer size) {
+
+		return ResponseEntity.ok(ownerService.search(q, size));
+
+	}
+
+	/**
+	 * Get a page of owners ordered by id. With include=pets each owner comes
+	 * with its pets : two queries whatever the page size.
+	 *
+	 * @param after cursor returned as next by the previous page
+	 * @param size
+	 * @param include pets, or nothing for the owners alone
+	 * @return
+	 */
+	@GetMapping(value = "/owners/page")
+	public ResponseEntity<KeysetPageDTO<OwnerDTO>> findOwnersPage(@RequestParam(required = false) Long after,
+			@RequestParam(required = false) Integer size, @RequestParam(required = false) String include) {
+
+		if (include == null)
+			return ResponseEntity.ok(ownerService.findPage(after, size));
+
+		if (!INCLUDE_PETS.equals(include))
+			return ResponseEntity.badRequest().build();
+
+		return ResponseEntity.ok(ownerService.findPageWithPets(after, size));
+
+	}
 
-		List<OwnerDTO> ownersDTO = this.mapper.mapToDtoList(owners);
-		log.info("ownersDTO: " + ownersDTO);
-		ownersDTO.forEach(item -> log.info("OwnerDTO >>  {} ", item));
+	/**
+	 * Export all owners as newline-delimited JSON, streamed row by row
+	 *
+	 * @param format
+	 * @param response
+	 * @throws IOException
+	 */
+	@GetMapping(value = "/owners/export")
+	public void exportOwners(@RequestParam(defaultValue = NdjsonExporter.FORMAT) String format,
+			HttpServletResponse response) throws IOException {
 
-		return ResponseEntity.ok(ownersDTO);
+		exporter.export(format, response, ownerService::exportAll);
 
 	}
 
@@ -81,25 +185,66 @@ public class OwnerController {
 
 	}
 
+	/**
+	 * Create many owners in one request, inserted in JDBC batches
+	 *
+	 * @param ownerDTOs
+	 * @return generated ids, in the same order
+	 */
+	@PostMapping(value = "/owners/batch")
+	@ResponseStatus(HttpStatus.CREATED)
+	ResponseEntity<List<Long>> createBatch(@RequestBody List<OwnerDTO> ownerDTOs) {
+
+		List<Long> ids = ownerService.createAll(ownerDTOs);
+
+		return ResponseEntity.status(HttpStatus.CREATED).body(ids);
+
+	}
+
 	/**
 	 * Find owner by id
 	 *
 	 * @param id
+	 * @param ifNoneMatch ETag of the copy the client has, answered with 304 when still current
 	 * @return
 	 * @throws OwnerNotFoundException
 	 */
 	@GetMapping(value = "/owners/{id}")
-	ResponseEntity<OwnerDTO> findById(@PathVariable Long id) {
+	ResponseEntity<OwnerDTO> findById(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
 		OwnerDTO ownerDto = null;
 
 		try {
+			// Revalidation, from the version alone
+			if (ifNoneMatch != null) {
+				String eTag = ETags.of(ownerService.findVersion(id));
+				if (ETags.matches(ifNoneMatch, eTag))
+					return notModified(eTag);
+			}
+
 			ownerDto = ownerService.findById(id);
 
 		} catch (OwnerNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
-		return ResponseEntity.ok(ownerDto);
+		return ResponseEntity.ok().eTag(ETags.of(ownerDto.getVersion())).cacheControl(cacheControl).body(ownerDto);
+	}
+
+	/**
+	 * Find the pets of an owner
+	 *
+	 * @param id
+	 * @return
+	 */
+	@GetMapping(value = "/owners/{id}/pets")
+	ResponseEntity<List<PetDTO>> findPets(@PathVariable Long id) {
+
+		try {
+			return ResponseEntity.ok(ownerService.findPets(id));
+		} catch (OwnerNotFoundException e) {
+			return ResponseEntity.notFound().build();
+		}
 	}
 
 	/**
@@ -107,46 +252,48 @@ public class OwnerController {
 	 *
 	 * @param ownerDTO
 	 * @param id
+	 * @param ifMatch ETag of the version read, the update is refused with 412 when it changed
 	 * @return
 	 */
 	@PutMapping(value = "/owners/{id}")
-	ResponseEntity<OwnerDTO> update(@RequestBody OwnerDTO ownerDTO, @PathVariable Long id) {
+	ResponseEntity<OwnerDTO> update(@RequestBody OwnerDTO ownerDTO, @PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
 		OwnerDTO updateOwnerDto = null;
 
 		try {
+			ownerDTO.setId(id);
+			ownerDTO.setVersion(ETags.version(ifMatch));
 
-			updateOwnerDto = ownerService.findById(id);
-
-			updateOwnerDto.setFirstName(ownerDTO.getFirstName());
-			updateOwnerDto.setLastName(ownerDTO.getLastName());
-			updateOwnerDto.setAddress(ownerDTO.getAddress());
-			updateOwnerDto.setCity(ownerDTO.getCity());
-			updateOwnerDto.setTelephone(ownerDTO.getTelephone());
-
-			ownerService.update(updateOwnerDto);
+			updateOwnerDto = ownerService.update(ownerDTO);
 
 		} catch (OwnerNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
 
-		return ResponseEntity.ok(updateOwnerDto);
+		return ResponseEntity.ok().eTag(ETags.of(updateOwnerDto.getVersion())).body(updateOwnerDto);
 	}
 
 	/**
 	 * Delete owner by id
 	 *
 	 * @param id
+	 * @param ifMatch ETag of the version read, the delete is refused with 412 when it changed
 	 */
 	@DeleteMapping(value = "/owners/{id}")
-	ResponseEntity<String> delete(@PathVariable Long id) {
+	ResponseEntity<String> delete(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
 		try {
-			ownerService.delete(id);
+			ownerService.delete(id, ETags.version(ifMatch));
 			return ResponseEntity.ok(" Delete ID :" + id);
 		} catch (OwnerNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
 	}
 
+	private <T> ResponseEntity<T> notModified(String eTag) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+	}
+
 }
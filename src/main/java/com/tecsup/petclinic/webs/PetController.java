@@ -1,8 +1,13 @@
 package com.tecsup.petclinic.webs;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.mapper.PetMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,14 +16,17 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.tecsup.petclinic.entities.Pet;
 import com.tecsup.petclinic.exceptions.PetNotFoundException;
 import com.tecsup.petclinic.services.PetService;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 
@@ -37,36 +45,85 @@ public class PetController {
 	//@Autowired
 	private PetMapper mapper;
 
+	private NdjsonExporter exporter;
+
+	// Cache-Control of the pets responses
+	private CacheControl cacheControl;
+
 	/**
 	 *  Change
 	 * @param petService
 	 * @param mapper
+	 * @param exporter
+	 * @param maxAge seconds a client may reuse a response without revalidating it
 	 */
-	public PetController(PetService petService, PetMapper mapper){
+	public PetController(PetService petService, PetMapper mapper, NdjsonExporter exporter,
+			@Value("${petclinic.http.max-age.pets:0}") long maxAge) {
 		this.petService = petService;
 		this.mapper = mapper ;
+		this.exporter = exporter;
+		this.cacheControl = maxAge > 0 ? CacheControl.maxAge(maxAge, TimeUnit.SECONDS).mustRevalidate()
+				: CacheControl.noCache();
 	}
 
 	/**
-	 * Get all pets
+	 * Get all pets. With If-None-Match the table version is checked first and
+	 * 304 Not Modified answered without loading the pets when it did not change.
 	 *
+	 * @param ifNoneMatch
 	 * @return
 	 */
 	@GetMapping(value = "/pets")
-	public ResponseEntity<List<PetDTO>> findAllPets() {
+	public ResponseEntity<List<PetDTO>> findAllPets(
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+		if (ifNoneMatch != null) {
+			String eTag = ETags.ofTable(petService.findTableVersion());
+			if (ETags.matches(ifNoneMatch, eTag))
+				return notModified(eTag);
+		}
+
+		List<PetDTO> petsTO = petService.findAllDto();
+		if (log.isDebugEnabled())
+			petsTO.forEach(item -> log.debug("PetTO >>  {} ", item));
+
+		return ResponseEntity.ok()
+				.eTag(ETags.ofTable(petsTO, PetDTO::getId, PetDTO::getVersion))
+				.cacheControl(cacheControl)
+				.body(petsTO);
+
+	}
 
-		List<Pet> pets = petService.findAll();
-		log.info("pets: " + pets);
-		pets.forEach(item -> log.info("Pet >>  {} ", item));
 
-		List<PetDTO> petsTO = this.mapper.mapToDtoList(pets);
-		log.info("petsTO: " + petsTO);
-		petsTO.forEach(item -> log.info("PetTO >>  {} ", item));
+	/**
+	 * Get a page of pets ordered by id
+	 *
+	 * @param after cursor returned as next by the previous page
+	 * @param size
+	 * @return
+	 */
+	@GetMapping(value = "/pets/page")
+	public ResponseEntity<KeysetPageDTO<PetDTO>> findPetsPage(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer size) {
 
-		return ResponseEntity.ok(petsTO);
+		return ResponseEntity.ok(petService.findPage(after, size));
 
 	}
 
+	/**
+	 * Export all pets as newline-delimited JSON, streamed row by row
+	 *
+	 * @param format
+	 * @param response
+	 * @throws IOException
+	 */
+	@GetMapping(value = "/pets/export")
+	public void exportPets(@RequestParam(defaultValue = NdjsonExporter.FORMAT) String format,
+			HttpServletResponse response) throws IOException {
+
+		exporter.export(format, response, petService::exportAll);
+
+	}
 
 	/**
 	 * Create pet
@@ -85,26 +142,51 @@ public class PetController {
 
 	}
 
+	/**
+	 * Create many pets in one request, inserted in JDBC batches
+	 *
+	 * @param petTOs
+	 * @return generated ids, in the same order
+	 */
+	@PostMapping(value = "/pets/batch")
+	@ResponseStatus(HttpStatus.CREATED)
+	ResponseEntity<List<Integer>> createBatch(@RequestBody List<PetDTO> petTOs) {
+
+		List<Integer> ids = petService.createAll(petTOs);
+
+		return ResponseEntity.status(HttpStatus.CREATED).body(ids);
+
+	}
+
 
 	/**
 	 * Find pet by id
 	 *
 	 * @param id
+	 * @param ifNoneMatch ETag of the copy the client has, answered with 304 when still current
 	 * @return
 	 * @throws PetNotFoundException
 	 */
 	@GetMapping(value = "/pets/{id}")
-	ResponseEntity<PetDTO> findById(@PathVariable Integer id) {
+	ResponseEntity<PetDTO> findById(@PathVariable Integer id,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
 		PetDTO petDto = null;
 
 		try {
+			// Revalidation, from the version alone
+			if (ifNoneMatch != null) {
+				String eTag = ETags.of(petService.findVersion(id));
+				if (ETags.matches(ifNoneMatch, eTag))
+					return notModified(eTag);
+			}
+
             petDto = petService.findById(id);
 
 		} catch (PetNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
-		return ResponseEntity.ok(petDto);
+		return ResponseEntity.ok().eTag(ETags.of(petDto.getVersion())).cacheControl(cacheControl).body(petDto);
 	}
 
 	/**
@@ -112,44 +194,48 @@ public class PetController {
 	 *
 	 * @param petTO
 	 * @param id
+	 * @param ifMatch ETag of the version read, the update is refused with 412 when it changed
 	 * @return
 	 */
 	@PutMapping(value = "/pets/{id}")
-	ResponseEntity<PetDTO>  update(@RequestBody PetDTO petTO, @PathVariable Integer id) {
+	ResponseEntity<PetDTO> update(@RequestBody PetDTO petTO, @PathVariable Integer id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
 		PetDTO updatePetDto = null;
 
 		try {
+			petTO.setId(id);
+			petTO.setVersion(ETags.version(ifMatch));
 
-            updatePetDto = petService.findById(id);
-
-            updatePetDto.setName(petTO.getName());
-            updatePetDto.setOwnerId(petTO.getOwnerId());
-            updatePetDto.setTypeId(petTO.getTypeId());
-
-			petService.update(updatePetDto);
+			updatePetDto = petService.update(petTO);
 
 		} catch (PetNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
 
-		return ResponseEntity.ok(updatePetDto);
+		return ResponseEntity.ok().eTag(ETags.of(updatePetDto.getVersion())).body(updatePetDto);
 	}
 
 	/**
 	 * Delete pet by id
 	 *
 	 * @param id
+	 * @param ifMatch ETag of the version read, the delete is refused with 412 when it changed
 	 */
 	@DeleteMapping(value = "/pets/{id}")
-	ResponseEntity<String> delete(@PathVariable Integer id) {
+	ResponseEntity<String> delete(@PathVariable Integer id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
 		try {
-			petService.delete(id);
+			petService.delete(id, ETags.version(ifMatch));
 			return ResponseEntity.ok(" Delete ID :" + id);
 		} catch (PetNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
 	}
 
+	private <T> ResponseEntity<T> notModified(String eTag) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+	}
+
 }
@@ -0,0 +1,130 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.config.SqlStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL statements, rows and JDBC time of each request, from {@link SqlStats}.
+ *
+ * They are sent back as X-SQL-* response headers and recorded in the
+ * petclinic.request.queries, petclinic.request.rows and petclinic.request.jdbc
+ * metrics, tagged with the endpoint pattern like http.server.requests.
+ *
+ * A request that returns at least min-results results and runs more
+ * statements than results is flagged as a possible N+1 : logged, counted
+ * in petclinic.request.n_plus_one and marked with X-SQL-N-Plus-One.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class QueryMetricsInterceptor implements HandlerInterceptor {
+
+	public static final String METRIC = "petclinic.request.queries";
+
+	public static final String HEADER_STATEMENTS = "X-SQL-Statements";
+
+	public static final String HEADER_ROWS = "X-SQL-Rows";
+
+	public static final String HEADER_TIME = "X-SQL-Time-Ms";
+
+	public static final String HEADER_N_PLUS_ONE = "X-SQL-N-Plus-One";
+
+	private final MeterRegistry meterRegistry;
+
+	// Smallest result count checked for N+1, one or two rows prove nothing
+	private final int minResults;
+
+	public QueryMetricsInterceptor(MeterRegistry meterRegistry,
+			@Value("${petclinic.sql.n-plus-one.min-results:3}") int minResults) {
+		this.meterRegistry = meterRegistry;
+		this.minResults = minResults;
+	}
+
+	/**
+	 * Add the SQL statistics of the current request to the response headers
+	 *
+	 * @param headers
+	 * @param results number of results of the response, null when unknown
+	 */
+	public void writeHeaders(HttpHeaders headers, Long results) {
+
+		SqlStats stats = SqlStats.current();
+
+		headers.set(HEADER_STATEMENTS, String.valueOf(stats.getStatements()));
+		headers.set(HEADER_ROWS, String.valueOf(stats.getRows()));
+		headers.set(HEADER_TIME, String.valueOf(TimeUnit.NANOSECONDS.toMillis(stats.getJdbcNanos())));
+		if (isNPlusOne(stats.getStatements(), results))
+			headers.set(HEADER_N_PLUS_ONE, "true");
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		SqlStats.reset();
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+
+		SqlStats stats = SqlStats.current();
+
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+		DistributionSummary.builder(METRIC)
+				.description("SQL statements run by one request")
+				.baseUnit("queries")
+				.tag("method", request.getMethod())
+				.tag("uri", uri)
+				.register(meterRegistry)
+				.record(stats.getStatements());
+
+		DistributionSummary.builder("petclinic.request.rows")
+				.description("Rows read or updated by one request")
+				.baseUnit("rows")
+				.tag("method", request.getMethod())
+				.tag("uri", uri)
+				.register(meterRegistry)
+				.record(stats.getRows());
+
+		Timer.builder("petclinic.request.jdbc")
+				.description("Time spent in JDBC statements by one request")
+				.tag("method", request.getMethod())
+				.tag("uri", uri)
+				.register(meterRegistry)
+				.record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+
+		Long results = RequestLogInterceptor.resultCount(request);
+		if (isNPlusOne(stats.getStatements(), results)) {
+			log.warn("Possible N+1 method={} path={} statements={} results={}",
+					request.getMethod(), request.getRequestURI(), stats.getStatements(), results);
+			Counter.builder("petclinic.request.n_plus_one")
+					.description("Requests running more statements than results they return")
+					.tag("method", request.getMethod())
+					.tag("uri", uri)
+					.register(meterRegistry)
+					.increment();
+		}
+	}
+
+	private boolean isNPlusOne(long statements, Long results) {
+		return results != null && results >= minResults && statements > results;
+	}
+
+}
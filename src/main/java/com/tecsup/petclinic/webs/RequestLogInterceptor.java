@@ -0,0 +1,99 @@
+package com.tecsup.petclinic.webs;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One log line per request instead of one per row : method, path, filters
+ * (query parameters), status, number of results and duration.
+ *
+ * Only a sample of the requests is logged. Failed requests (4xx or 5xx
+ * status, exceptions handled by an advice included) and slow requests are
+ * always logged.
+ *
+ * @author jgomezm
+ *
+ */
+@Component
+@Slf4j
+public class RequestLogInterceptor implements HandlerInterceptor {
+
+	private static final String START = RequestLogInterceptor.class.getName() + ".start";
+
+	private static final String COUNT = RequestLogInterceptor.class.getName() + ".count";
+
+	// Fraction of the requests logged, between 0 and 1
+	private final double sampleRate;
+
+	// Requests slower than this are always logged
+	private final long slowMillis;
+
+	public RequestLogInterceptor(@Value("${petclinic.request-log.sample-rate:0.1}") double sampleRate,
+			@Value("${petclinic.request-log.slow-ms:500}") long slowMillis) {
+		this.sampleRate = sampleRate;
+		this.slowMillis = slowMillis;
+	}
+
+	/**
+	 * Record the number of results returned by the current request
+	 *
+	 * @param count
+	 */
+	public static void recordCount(long count) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null)
+			attributes.setAttribute(COUNT, count, RequestAttributes.SCOPE_REQUEST);
+	}
+
+	/**
+	 * Number of results recorded for the request, null when none was recorded
+	 *
+	 * @param request
+	 * @return
+	 */
+	public static Long resultCount(HttpServletRequest request) {
+		return request.getAttribute(COUNT) instanceof Long count ? count : null;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		request.setAttribute(START, System.nanoTime());
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+
+		if (!log.isInfoEnabled() || !(request.getAttribute(START) instanceof Long start))
+			return;
+
+		long durationMs = (System.nanoTime() - start) / 1_000_000;
+		int status = response.getStatus();
+
+		boolean always = ex != null || status >= 400 || durationMs >= slowMillis;
+		if (!always && ThreadLocalRandom.current().nextDouble() >= sampleRate)
+			return;
+
+		log.info("request method={} path={} filters={} status={} count={} durationMs={}",
+				request.getMethod(), request.getRequestURI(), filters(request), status,
+				request.getAttribute(COUNT), durationMs);
+	}
+
+	private Map<String, String> filters(HttpServletRequest request) {
+		Map<String, String> filters = new TreeMap<>();
+		request.getParameterMap().forEach((name, values) -> filters.put(name, String.join(",", values)));
+		return filters;
+	}
+
+}
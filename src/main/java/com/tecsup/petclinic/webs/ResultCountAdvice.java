@@ -0,0 +1,57 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collection;
+
+/**
+ * Counts the results of list and page responses for the request log, and
+ * adds the SQL statistics of the request to the response headers.
+ *
+ * @author jgomezm
+ *
+ */
+@RestControllerAdvice
+public class ResultCountAdvice implements ResponseBodyAdvice<Object> {
+
+	private QueryMetricsInterceptor queryMetrics;
+
+	public ResultCountAdvice(QueryMetricsInterceptor queryMetrics) {
+		this.queryMetrics = queryMetrics;
+	}
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+
+		Long count = count(body);
+		if (count != null)
+			RequestLogInterceptor.recordCount(count);
+
+		queryMetrics.writeHeaders(response.getHeaders(), count);
+
+		return body;
+	}
+
+	private Long count(Object body) {
+		if (body instanceof Collection<?> items)
+			return (long) items.size();
+		if (body instanceof KeysetPageDTO<?> page && page.getItems() != null)
+			return (long) page.getItems().size();
+		return body == null ? null : 1L;
+	}
+
+}
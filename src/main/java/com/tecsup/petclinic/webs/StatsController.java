@@ -0,0 +1,42 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.dtos.StatsDTO;
+import com.tecsup.petclinic.services.ClinicStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST Controller for the clinic counters of the dashboards
+ *
+ * @author jgomezm
+ *
+ */
+@RestController
+public class StatsController {
+
+	private ClinicStats clinicStats;
+
+	/**
+	 * Constructor with dependency injection
+	 *
+	 * @param clinicStats
+	 */
+	public StatsController(ClinicStats clinicStats) {
+		this.clinicStats = clinicStats;
+	}
+
+	/**
+	 * Get the counters : pets by type, owners by city, visits and revenue by
+	 * vet and their totals. Read from memory, no query.
+	 *
+	 * @return
+	 */
+	@GetMapping(value = "/stats")
+	public ResponseEntity<StatsDTO> findStats() {
+
+		return ResponseEntity.ok(clinicStats.snapshot());
+
+	}
+
+}
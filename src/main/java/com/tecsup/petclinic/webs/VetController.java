@@ -1,8 +1,13 @@
 package com.tecsup.petclinic.webs;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.VetDTO;
 import com.tecsup.petclinic.mapper.VetMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,6 +16,8 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -18,7 +25,9 @@ import com.tecsup.petclinic.entities.Vet;
 import com.tecsup.petclinic.exceptions.VetNotFoundException;
 import com.tecsup.petclinic.services.VetService;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST Controller for Vet entity
@@ -34,34 +43,85 @@ public class VetController {
 
 	private VetMapper mapper;
 
+	private NdjsonExporter exporter;
+
+	// Cache-Control of the vets responses
+	private CacheControl cacheControl;
+
 	/**
 	 * Constructor with dependency injection
 	 * 
 	 * @param vetService
 	 * @param mapper
+	 * @param exporter
+	 * @param maxAge seconds a client may reuse a response without revalidating it
 	 */
-	public VetController(VetService vetService, VetMapper mapper) {
+	public VetController(VetService vetService, VetMapper mapper, NdjsonExporter exporter,
+			@Value("${petclinic.http.max-age.vets:0}") long maxAge) {
 		this.vetService = vetService;
 		this.mapper = mapper;
+		this.exporter = exporter;
+		this.cacheControl = maxAge > 0 ? CacheControl.maxAge(maxAge, TimeUnit.SECONDS).mustRevalidate()
+				: CacheControl.noCache();
 	}
 
 	/**
-	 * Get all vets
+	 * Get all vets. With If-None-Match the table version is checked first and
+	 * 304 Not Modified answered without loading the vets when it did not change.
 	 *
+	 * @param ifNoneMatch
 	 * @return
 	 */
 	@GetMapping(value = "/vets")
-	public ResponseEntity<List<VetDTO>> findAllVets() {
+	public ResponseEntity<List<VetDTO>> findAllVets(
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+		if (ifNoneMatch != null) {
+			String eTag = ETags.ofTable(vetService.findTableVersion());
+			if (ETags.matches(ifNoneMatch, eTag))
+				return notModified(eTag);
+		}
 
 		List<Vet> vets = vetService.findAll();
-		log.info("vets: " + vets);
-		vets.forEach(item -> log.info("Vet >>  {} ", item));
 
 		List<VetDTO> vetsDTO = this.mapper.mapToDtoList(vets);
-		log.info("vetsDTO: " + vetsDTO);
-		vetsDTO.forEach(item -> log.info("VetDTO >>  {} ", item));
+		if (log.isDebugEnabled())
+			vetsDTO.forEach(item -> log.debug("VetDTO >>  {} ", item));
 
-		return ResponseEntity.ok(vetsDTO);
+		return ResponseEntity.ok()
+				.eTag(ETags.ofTable(vetsDTO, VetDTO::getId, VetDTO::getVersion))
+				.cacheControl(cacheControl)
+				.body(vetsDTO);
+
+	}
+
+	/**
+	 * Get a page of vets ordered by id
+	 *
+	 * @param after cursor returned as next by the previous page
+	 * @param size
+	 * @return
+	 */
+	@GetMapping(value = "/vets/page")
+	public ResponseEntity<KeysetPageDTO<VetDTO>> findVetsPage(@RequestParam(required = false) Integer after,
+			@RequestParam(required = false) Integer size) {
+
+		return ResponseEntity.ok(vetService.findPage(after, size));
+
+	}
+
+	/**
+	 * Export all vets as newline-delimited JSON, streamed row by row
+	 *
+	 * @param format
+	 * @param response
+	 * @throws IOException
+	 */
+	@GetMapping(value = "/vets/export")
+	public void exportVets(@RequestParam(defaultValue = NdjsonExporter.FORMAT) String format,
+			HttpServletResponse response) throws IOException {
+
+		exporter.export(format, response, vetService::exportAll);
 
 	}
 
@@ -81,25 +141,50 @@ public class VetController {
 
 	}
 
+	/**
+	 * Create many vets in one request, inserted in JDBC batches
+	 *
+	 * @param vetDTOs
+	 * @return generated ids, in the same order
+	 */
+	@PostMapping(value = "/vets/batch")
+	@ResponseStatus(HttpStatus.CREATED)
+	ResponseEntity<List<Integer>> createBatch(@RequestBody List<VetDTO> vetDTOs) {
+
+		List<Integer> ids = vetService.createAll(vetDTOs);
+
+		return ResponseEntity.status(HttpStatus.CREATED).body(ids);
+
+	}
+
 	/**
 	 * Find vet by id
 	 *
 	 * @param id
+	 * @param ifNoneMatch ETag of the copy the client has, answered with 304 when still current
 	 * @return
 	 * @throws VetNotFoundException
 	 */
 	@GetMapping(value = "/vets/{id}")
-	ResponseEntity<VetDTO> findById(@PathVariable Integer id) {
+	ResponseEntity<VetDTO> findById(@PathVariable Integer id,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
 		VetDTO vetDto = null;
 
 		try {
+			// Revalidation, from the version alone
+			if (ifNoneMatch != null) {
+				String eTag = ETags.of(vetService.findVersion(id));
+				if (ETags.matches(ifNoneMatch, eTag))
+					return notModified(eTag);
+			}
+
 			vetDto = vetService.findById(id);
 
 		} catch (VetNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
-		return ResponseEntity.ok(vetDto);
+		return ResponseEntity.ok().eTag(ETags.of(vetDto.getVersion())).cacheControl(cacheControl).body(vetDto);
 	}
 
 	/**
@@ -107,43 +192,48 @@ public class VetController {
 	 *
 	 * @param vetDTO
 	 * @param id
+	 * @param ifMatch ETag of the version read, the update is refused with 412 when it changed
 	 * @return
 	 */
 	@PutMapping(value = "/vets/{id}")
-	ResponseEntity<VetDTO> update(@RequestBody VetDTO vetDTO, @PathVariable Integer id) {
+	ResponseEntity<VetDTO> update(@RequestBody VetDTO vetDTO, @PathVariable Integer id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
 		VetDTO updateVetDto = null;
 
 		try {
+			vetDTO.setId(id);
+			vetDTO.setVersion(ETags.version(ifMatch));
 
-			updateVetDto = vetService.findById(id);
-
-			updateVetDto.setFirstName(vetDTO.getFirstName());
-			updateVetDto.setLastName(vetDTO.getLastName());
-
-			vetService.update(updateVetDto);
+			updateVetDto = vetService.update(vetDTO);
 
 		} catch (VetNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
 
-		return ResponseEntity.ok(updateVetDto);
+		return ResponseEntity.ok().eTag(ETags.of(updateVetDto.getVersion())).body(updateVetDto);
 	}
 
 	/**
 	 * Delete vet by id
 	 *
 	 * @param id
+	 * @param ifMatch ETag of the version read, the delete is refused with 412 when it changed
 	 */
 	@DeleteMapping(value = "/vets/{id}")
-	ResponseEntity<String> delete(@PathVariable Integer id) {
+	ResponseEntity<String> delete(@PathVariable Integer id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
 		try {
-			vetService.delete(id);
+			vetService.delete(id, ETags.version(ifMatch));
 			return ResponseEntity.ok(" Delete ID :" + id);
 		} catch (VetNotFoundException e) {
 			return ResponseEntity.notFound().build();
 		}
 	}
 
+	private <T> ResponseEntity<T> notModified(String eTag) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+	}
+
 }
@@ -0,0 +1,183 @@
+package com.tecsup.petclinic.webs;
+
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
+import com.tecsup.petclinic.dtos.SlotDTO;
+import com.tecsup.petclinic.dtos.VisitDTO;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.exceptions.VisitNotFoundException;
+import com.tecsup.petclinic.services.AppointmentService;
+import com.tecsup.petclinic.services.VisitService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST Controller for Visit entity
+ *
+ * @author jgomezm
+ *
+ */
+@RestController
+@Slf4j
+public class VisitController {
+
+	private VisitService visitService;
+
+	private AppointmentService appointmentService;
+
+	/**
+	 * Constructor with dependency injection
+	 *
+	 * @param visitService
+	 * @param appointmentService
+	 */
+	public VisitController(VisitService visitService, AppointmentService appointmentService) {
+		this.visitService = visitService;
+		this.appointmentService = appointmentService;
+	}
+
+	/**
+	 * Create visit
+	 *
+	 * @param visitDTO
+	 * @return
+	 */
+	@PostMapping(value = "/visits")
+	@ResponseStatus(HttpStatus.CREATED)
+	ResponseEntity<VisitDTO> create(@RequestBody VisitDTO visitDTO) {
+
+		try {
+			VisitDTO newVisitDTO = visitService.create(visitDTO);
+			return ResponseEntity.status(HttpStatus.CREATED).body(newVisitDTO);
+		} catch (PetNotFoundException | VetNotFoundException e) {
+			return ResponseEntity.notFound().build();
+		}
+
+	}
+
+	/**
+	 * Find visit by id
+	 *
+	 * @param id
+	 * @return
+	 */
+	@GetMapping(value = "/visits/{id}")
+	ResponseEntity<VisitDTO> findById(@PathVariable Long id) {
+
+		VisitDTO visitDto = null;
+
+		try {
+			visitDto = visitService.findById(id);
+
+		} catch (VisitNotFoundException e) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(visitDto);
+	}
+
+	/**
+	 * Get a page of visits between two dates, both included, ordered by date
+	 *
+	 * @param from
+	 * @param to
+	 * @param after cursor returned as next by the previous page
+	 * @param size
+	 * @return
+	 */
+	@GetMapping(value = "/visits")
+	public ResponseEntity<KeysetPageDTO<VisitDTO>> findVisitsByDate(
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(required = false) String after, @RequestParam(required = false) Integer size) {
+
+		return ResponseEntity.ok(visitService.findByDateRange(from, to, after, size));
+
+	}
+
+	/**
+	 * Get a page of the visits of a pet
+	 *
+	 * @param petId
+	 * @param after cursor returned as next by the previous page
+	 * @param size
+	 * @return
+	 */
+	@GetMapping(value = "/pets/{petId}/visits")
+	public ResponseEntity<KeysetPageDTO<VisitDTO>> findVisitsByPet(@PathVariable Integer petId,
+			@RequestParam(required = false) Long after, @RequestParam(required = false) Integer size) {
+
+		return ResponseEntity.ok(visitService.findByPet(petId, after, size));
+
+	}
+
+	/**
+	 * Get a page of the visits of a vet
+	 *
+	 * @param vetId
+	 * @param after cursor returned as next by the previous page
+	 * @param size
+	 * @return
+	 */
+	@GetMapping(value = "/vets/{vetId}/visits")
+	public ResponseEntity<KeysetPageDTO<VisitDTO>> findVisitsByVet(@PathVariable Integer vetId,
+			@RequestParam(required = false) Long after, @RequestParam(required = false) Integer size) {
+
+		return ResponseEntity.ok(visitService.findByVet(vetId, after, size));
+
+	}
+
+	/**
+	 * Get the free appointment slots of a vet on a day
+	 *
+	 * @param vetId
+	 * @param date
+	 * @param specialtyId only the slots of this specialty
+	 * @return ordered by start
+	 */
+	@GetMapping(value = "/vets/{vetId}/slots")
+	public ResponseEntity<List<SlotDTO>> findSlots(@PathVariable Integer vetId,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+			@RequestParam(required = false) Integer specialtyId) {
+
+		try {
+			return ResponseEntity.ok(appointmentService.findSlots(vetId, date, specialtyId));
+		} catch (VetNotFoundException e) {
+			return ResponseEntity.notFound().build();
+		}
+
+	}
+
+	/**
+	 * Book a visit with a vet in a free slot, given by visitDate and
+	 * visitTime. 409 Conflict when the slot is not free anymore.
+	 *
+	 * @param vetId
+	 * @param visitDTO
+	 * @return
+	 */
+	@PostMapping(value = "/vets/{vetId}/appointments")
+	@ResponseStatus(HttpStatus.CREATED)
+	ResponseEntity<VisitDTO> book(@PathVariable Integer vetId, @RequestBody VisitDTO visitDTO) {
+
+		try {
+			VisitDTO newVisitDTO = appointmentService.book(vetId, visitDTO);
+			return ResponseEntity.status(HttpStatus.CREATED).body(newVisitDTO);
+		} catch (PetNotFoundException | VetNotFoundException e) {
+			return ResponseEntity.notFound().build();
+		}
+
+	}
+
+}
@@ -0,0 +1,10 @@
+-- ===============================================
+-- Lock row of the change relay
+-- ===============================================
+-- ChangeRelay locks this row (SELECT ... FOR UPDATE) around each pass that
+-- numbers or sends changes : with several instances, one pass at a time.
+CREATE TABLE change_relay_lock (
+  id    INTEGER NOT NULL PRIMARY KEY
+);
+
+INSERT INTO change_relay_lock VALUES (1);
@@ -0,0 +1,15 @@
+-- ===============================================
+-- TABLE: id_generators (Generadores de IDs)
+-- Description: Next id of pets, owners and vets. Hibernate reserves
+-- ids in blocks of 50 (pooled-lo), so inserts can be batched.
+-- Each one starts after the rows already in its table.
+-- ===============================================
+CREATE TABLE IF NOT EXISTS id_generators (
+  name          VARCHAR(40) NOT NULL,
+  next_val      BIGINT NOT NULL,
+  PRIMARY KEY (name)
+);
+
+INSERT INTO id_generators (name, next_val) SELECT 'pets', COALESCE(MAX(id), 0) + 1 FROM pets;
+INSERT INTO id_generators (name, next_val) SELECT 'owners', COALESCE(MAX(id), 0) + 1 FROM owners;
+INSERT INTO id_generators (name, next_val) SELECT 'vets', COALESCE(MAX(id), 0) + 1 FROM vets;
@@ -0,0 +1,7 @@
+-- ===============================================
+-- Version of the pets, owners and vets : incremented by every update,
+-- checked against If-Match (optimistic locking)
+-- ===============================================
+ALTER TABLE vets ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE owners ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE pets ADD COLUMN version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,15 @@
+-- ===============================================
+-- Indexes for the derived finder queries
+-- ===============================================
+-- OwnerRepository.findByFirstName / findByCity
+CREATE INDEX idx_owners_first_name ON owners(first_name);
+CREATE INDEX idx_owners_city ON owners(city);
+
+-- VetRepository.findByFirstName
+CREATE INDEX idx_vets_first_name ON vets(first_name);
+
+-- PetRepository.findByTypeId / findByOwnerId. H2 already indexes the
+-- foreign keys, named after the constraints: make them explicit and
+-- named the same as in MySQL.
+CREATE INDEX idx_pets_type_id ON pets(type_id);
+CREATE INDEX idx_pets_owner_id ON pets(owner_id);
@@ -0,0 +1,11 @@
+-- ===============================================
+-- Heartbeat of the primary, read on the replica
+-- ===============================================
+-- ReplicaLagMonitor writes the time (epoch millis) here on the primary and
+-- reads it back on the replica : the difference is the replication lag.
+CREATE TABLE replica_heartbeat (
+  id    INTEGER NOT NULL PRIMARY KEY,
+  beat  BIGINT NOT NULL
+);
+
+INSERT INTO replica_heartbeat VALUES (1, 0);
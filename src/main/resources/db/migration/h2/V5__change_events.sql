@@ -0,0 +1,18 @@
+-- ===============================================
+-- Outbox of the changes to pets, owners, vets and specialties
+-- ===============================================
+-- Written by the services in the transaction of the change itself (see
+-- ChangeOutbox), read by the /changes feed (by id) and sent to the sink
+-- by ChangeRelay (the ones not relayed yet).
+CREATE TABLE change_events (
+  id            BIGINT AUTO_INCREMENT,
+  entity_type   VARCHAR(20) NOT NULL,
+  entity_id     BIGINT NOT NULL,
+  operation     VARCHAR(10) NOT NULL,
+  version       INT,
+  changed_at    TIMESTAMP NOT NULL,
+  relayed       BOOLEAN NOT NULL DEFAULT FALSE,
+  PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_change_events_relayed ON change_events(relayed, id);
@@ -0,0 +1,15 @@
+-- ===============================================
+-- Position of the changes in the /changes feed
+-- ===============================================
+-- Ids are taken at the insert but seen at the commit. ChangeRelay numbers
+-- the committed changes in seq, in the order it sees them, and the feed
+-- pages on it : a change committed late gets a higher seq than the ones
+-- already read. The changes written so far are all committed.
+ALTER TABLE change_events ADD COLUMN seq BIGINT;
+
+UPDATE change_events SET seq = id;
+
+CREATE UNIQUE INDEX idx_change_events_seq ON change_events(seq);
+
+DROP INDEX idx_change_events_relayed;
+CREATE INDEX idx_change_events_relayed ON change_events(relayed, seq);
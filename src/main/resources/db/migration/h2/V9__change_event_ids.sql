@@ -0,0 +1,7 @@
+-- ===============================================
+-- Ids of the change_events outbox from id_generators
+-- ===============================================
+-- Reserved by Hibernate in blocks of 50 (pooled-lo) like those of pets,
+-- owners and vets, so the outbox inserts join the JDBC batch of the
+-- changes they record. They start after the changes already written.
+INSERT INTO id_generators (name, next_val) SELECT 'change_events', COALESCE(MAX(id), 0) + 1 FROM change_events;
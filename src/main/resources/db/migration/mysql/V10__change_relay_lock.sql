@@ -0,0 +1,9 @@
+-- Lock row of the change relay
+
+-- ChangeRelay locks this row (SELECT ... FOR UPDATE) around each pass that
+-- numbers or sends changes : with several instances, one pass at a time.
+CREATE TABLE IF NOT EXISTS change_relay_lock (
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY
+) engine=InnoDB;
+
+INSERT INTO change_relay_lock VALUES (1);
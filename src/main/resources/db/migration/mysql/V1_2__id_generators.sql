@@ -0,0 +1,12 @@
+-- Next id of pets, owners and vets
+
+-- Hibernate reserves ids in blocks of 50 (pooled-lo), so inserts can be
+-- batched. Each one starts after the rows already in its table.
+CREATE TABLE IF NOT EXISTS id_generators (
+  name VARCHAR(40) NOT NULL PRIMARY KEY,
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+INSERT IGNORE INTO id_generators SELECT 'pets', COALESCE(MAX(id), 0) + 1 FROM pets;
+INSERT IGNORE INTO id_generators SELECT 'owners', COALESCE(MAX(id), 0) + 1 FROM owners;
+INSERT IGNORE INTO id_generators SELECT 'vets', COALESCE(MAX(id), 0) + 1 FROM vets;
@@ -0,0 +1,13 @@
+-- Vet and cost of the visits, and their finder indexes
+
+-- A visit keeps its rows when its vet is deleted, without a vet. Every
+-- visit has a date : a NULL one left by the former schema stops the
+-- migration, to be fixed by hand.
+ALTER TABLE visits
+  ADD COLUMN vet_id INT(4) UNSIGNED AFTER pet_id,
+  ADD COLUMN cost DECIMAL(10,2),
+  MODIFY visit_date DATE NOT NULL,
+  ADD INDEX idx_visits_pet_id (pet_id),
+  ADD INDEX idx_visits_vet_id (vet_id),
+  ADD INDEX idx_visits_date (visit_date),
+  ADD CONSTRAINT fk_visits_vet FOREIGN KEY (vet_id) REFERENCES vets(id) ON DELETE SET NULL;
@@ -0,0 +1,12 @@
+-- Rows deleted with their parent, in one statement
+
+-- The visits of a pet and the specialties of a vet go with them. The
+-- foreign keys of the former schema are unnamed : these are the names
+-- InnoDB gave them, in the order they were declared.
+ALTER TABLE visits DROP FOREIGN KEY visits_ibfk_1;
+ALTER TABLE visits
+  ADD CONSTRAINT fk_visits_pet FOREIGN KEY (pet_id) REFERENCES pets(id) ON DELETE CASCADE;
+
+ALTER TABLE vet_specialties DROP FOREIGN KEY vet_specialties_ibfk_1;
+ALTER TABLE vet_specialties
+  ADD CONSTRAINT fk_vet_specialties_vet FOREIGN KEY (vet_id) REFERENCES vets(id) ON DELETE CASCADE;
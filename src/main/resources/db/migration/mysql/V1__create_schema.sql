@@ -1,10 +1,7 @@
-CREATE DATABASE IF NOT EXISTS PETCLINIC_DB;
-
-ALTER DATABASE PETCLINIC_DB
-  DEFAULT CHARACTER SET utf8
-  DEFAULT COLLATE utf8_general_ci;
-
-USE PETCLINIC_DB;
+-- Flyway migration, applied once. Never edit it: add a new V<n>__ script.
+-- The schema of the former schema-mysql.sql : a database created by it is
+-- baselined at 1.1 (see application.yml) and gets every later migration.
+-- The database itself is created by the JDBC URL (createDatabaseIfNotExist).
 
 CREATE TABLE IF NOT EXISTS vets (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
@@ -60,4 +57,4 @@ CREATE TABLE IF NOT EXISTS visits (
   visit_date DATE,
   description VARCHAR(255),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
-) engine=InnoDB;
\ No newline at end of file
+) engine=InnoDB;
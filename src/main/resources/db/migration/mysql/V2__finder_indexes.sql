@@ -0,0 +1,14 @@
+-- Indexes for the derived finder queries
+
+-- OwnerRepository.findByFirstName / findByCity
+CREATE INDEX idx_owners_first_name ON owners(first_name);
+CREATE INDEX idx_owners_city ON owners(city);
+
+-- VetRepository.findByFirstName
+CREATE INDEX idx_vets_first_name ON vets(first_name);
+
+-- PetRepository.findByTypeId / findByOwnerId. InnoDB indexes the foreign
+-- keys only when no usable index exists, with the constraint name, and
+-- drops that index once these are created.
+CREATE INDEX idx_pets_type_id ON pets(type_id);
+CREATE INDEX idx_pets_owner_id ON pets(owner_id);
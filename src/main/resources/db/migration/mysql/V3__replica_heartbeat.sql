@@ -0,0 +1,10 @@
+-- Heartbeat of the primary, read on the replica
+
+-- ReplicaLagMonitor writes the time (epoch millis) here on the primary and
+-- reads it back on the replica : the difference is the replication lag.
+CREATE TABLE IF NOT EXISTS replica_heartbeat (
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
+  beat BIGINT NOT NULL
+) engine=InnoDB;
+
+INSERT INTO replica_heartbeat VALUES (1, 0);
@@ -0,0 +1,9 @@
+-- Appointments : visits booked at a time of day
+
+-- Visits with a visit_time hold a slot of the vet agenda (see
+-- AppointmentServiceImpl). The unique key keeps two bookings out of the
+-- same slot, also across instances, without locking the table. Visits
+-- without a time (NULL) are not appointments and never collide.
+ALTER TABLE visits
+  ADD COLUMN visit_time TIME NULL AFTER visit_date,
+  ADD UNIQUE KEY uk_visits_vet_slot (vet_id, visit_date, visit_time);
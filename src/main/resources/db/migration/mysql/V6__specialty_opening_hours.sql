@@ -0,0 +1,14 @@
+-- Office and opening hours of the specialties, experience of the vets
+
+-- Read by the appointment slots (/vets/{id}/slots) : a vet sees patients
+-- in the office of a specialty, between h_open and h_close (whole hours
+-- of the day), primary specialty first. The h2 schema has them from V1.
+ALTER TABLE specialties
+  ADD COLUMN office VARCHAR(40),
+  ADD COLUMN h_open INT,
+  ADD COLUMN h_close INT;
+
+ALTER TABLE vet_specialties
+  ADD COLUMN certification_date DATE,
+  ADD COLUMN years_experience INT DEFAULT 0,
+  ADD COLUMN is_primary BOOLEAN DEFAULT FALSE;
@@ -0,0 +1,8 @@
+-- The pets of an owner, and their visits, are deleted with the owner
+
+-- As in the h2 schema : OwnerServiceImpl.delete removes an owner in one
+-- statement and counts its pets and visits as deleted. pets_ibfk_1 is the
+-- name InnoDB gave the unnamed owner_id foreign key of V1.
+ALTER TABLE pets DROP FOREIGN KEY pets_ibfk_1;
+ALTER TABLE pets
+  ADD CONSTRAINT fk_pets_owner FOREIGN KEY (owner_id) REFERENCES owners(id) ON DELETE CASCADE;
@@ -0,0 +1,14 @@
+-- Position of the changes in the /changes feed
+
+-- Ids are taken at the insert but seen at the commit. ChangeRelay numbers
+-- the committed changes in seq, in the order it sees them, and the feed
+-- pages on it : a change committed late gets a higher seq than the ones
+-- already read. The changes written so far are all committed.
+ALTER TABLE change_events ADD COLUMN seq BIGINT UNSIGNED NULL;
+
+UPDATE change_events SET seq = id;
+
+ALTER TABLE change_events
+  ADD UNIQUE INDEX idx_change_events_seq (seq),
+  DROP INDEX idx_change_events_relayed,
+  ADD INDEX idx_change_events_relayed (relayed, seq);
@@ -0,0 +1,6 @@
+-- Ids of the change_events outbox from id_generators
+
+-- Reserved by Hibernate in blocks of 50 (pooled-lo) like those of pets,
+-- owners and vets, so the outbox inserts join the JDBC batch of the
+-- changes they record. They start after the changes already written.
+INSERT IGNORE INTO id_generators SELECT 'change_events', COALESCE(MAX(id), 0) + 1 FROM change_events;
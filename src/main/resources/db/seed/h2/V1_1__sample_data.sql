@@ -3,6 +3,7 @@
 -- ===============================================
 -- Author: PetClinic Team
 -- Description: Sample data for Pet Clinic Management System
+-- Flyway migration, applied once after V1__create_schema.sql
 -- Version: 2.0
 -- ===============================================
 
@@ -0,0 +1,4 @@
+UPDATE visits SET vet_id = 2, cost = 45.00 WHERE id = 1;
+UPDATE visits SET vet_id = 2, cost = 45.00 WHERE id = 2;
+UPDATE visits SET vet_id = 3, cost = 250.00 WHERE id = 3;
+UPDATE visits SET vet_id = 3, cost = 275.00 WHERE id = 4;
@@ -0,0 +1,9 @@
+UPDATE specialties SET office = 'Farewell', h_open = 8, h_close = 18 WHERE id = 1;
+UPDATE specialties SET office = 'Maryland', h_open = 8, h_close = 12 WHERE id = 2;
+UPDATE specialties SET office = 'Terranova', h_open = 9, h_close = 19 WHERE id = 3;
+
+UPDATE vet_specialties SET certification_date = '2015-06-15', years_experience = 8, is_primary = TRUE WHERE vet_id = 2 AND specialty_id = 1;
+UPDATE vet_specialties SET certification_date = '2012-03-20', years_experience = 11, is_primary = TRUE WHERE vet_id = 3 AND specialty_id = 2;
+UPDATE vet_specialties SET certification_date = '2018-11-10', years_experience = 5, is_primary = FALSE WHERE vet_id = 3 AND specialty_id = 3;
+UPDATE vet_specialties SET certification_date = '2014-09-05', years_experience = 9, is_primary = TRUE WHERE vet_id = 4 AND specialty_id = 2;
+UPDATE vet_specialties SET certification_date = '2016-02-28', years_experience = 7, is_primary = FALSE WHERE vet_id = 5 AND specialty_id = 1;
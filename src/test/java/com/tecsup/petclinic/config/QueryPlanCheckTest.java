@@ -0,0 +1,59 @@
+package com.tecsup.petclinic.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+@SpringBootTest
+@Slf4j
+public class QueryPlanCheckTest {
+
+    @Autowired
+    private QueryPlanCheck queryPlanCheck;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Flyway flyway;
+
+    /**
+     * Test that every repository finder is served by an index
+     */
+    @Test
+    public void testNoFullScan() {
+
+        assertEquals(List.of(), this.queryPlanCheck.check());
+    }
+
+    /**
+     * Test that the migrations were applied in order
+     */
+    @Test
+    public void testMigrationsApplied() {
+
+        List<String> versions = this.jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"success\" AND \"version\" IS NOT NULL ORDER BY \"installed_rank\"",
+                String.class);
+
+        assertEquals(List.of("1", "1.1", "1.2", "1.3", "2", "3", "4", "5", "8", "9", "10"), versions);
+    }
+
+    /**
+     * Test that a restart applies nothing once the schema is up to date
+     */
+    @Test
+    public void testMigrationsNotRepeated() {
+
+        assertEquals(0, this.flyway.migrate().migrationsExecuted);
+        assertEquals(0, this.flyway.info().pending().length);
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.tecsup.petclinic.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.services.PetService;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Routing between two H2 databases, the second one standing in for the
+ * replica : same migrations, with pet 1 renamed to tell which one answered.
+ */
+@SpringBootTest(properties = {
+        "petclinic.datasource.replica.url=" + ReplicaRoutingTest.REPLICA_URL,
+        "petclinic.datasource.replica.lag-check-ms=3600000" })
+@Slf4j
+public class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replicadb;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=false";
+
+    private static final String REPLICA_NAME = "Leo (replica)";
+
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void createReplica() {
+
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "sa")
+                .locations("classpath:db/migration/h2", "classpath:db/seed/h2")
+                .load()
+                .migrate();
+
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "sa"));
+        replica.update("UPDATE pets SET name = ? WHERE id = 1", REPLICA_NAME);
+    }
+
+    /**
+     * Test that read-only transactions are served by the replica
+     */
+    @Test
+    public void testReadsGoToReplica() throws Exception {
+
+        replicateHeartbeat(0);
+
+        assertTrue(lagMonitor().isReplicaUsable());
+        assertEquals(REPLICA_NAME, this.petService.findById(1).getName());
+    }
+
+    /**
+     * Test that writes go to the primary only
+     */
+    @Test
+    public void testWritesGoToPrimary() throws Exception {
+
+        replicateHeartbeat(0);
+
+        PetDTO pet = this.petService.create(PetDTO.builder().name("Routed").typeId(1).ownerId(1).build());
+
+        try {
+            String count = "SELECT count(*) FROM pets WHERE id = ?";
+            // Outside a transaction, on the primary
+            assertEquals(1, this.jdbcTemplate.queryForObject(count, Integer.class, pet.getId()));
+            assertEquals(0, replica.queryForObject(count, Integer.class, pet.getId()));
+        } finally {
+            this.petService.delete(pet.getId());
+        }
+    }
+
+    /**
+     * Test that a replica with the last beat written has no lag, however
+     * long ago that beat was written
+     */
+    @Test
+    public void testUpToDateReplicaHasNoLag() throws Exception {
+
+        lagMonitor().check();
+
+        // Replicated as is, some time later
+        Thread.sleep(50);
+        replica.update("UPDATE replica_heartbeat SET beat = ? WHERE id = 1",
+                this.jdbcTemplate.queryForObject("SELECT beat FROM replica_heartbeat WHERE id = 1", Long.class));
+        lagMonitor().check();
+
+        assertEquals(0, lagMonitor().getLagMillis());
+        assertTrue(lagMonitor().isReplicaUsable());
+    }
+
+    /**
+     * Test that the reads go back to the primary while the replica is behind
+     */
+    @Test
+    public void testLaggingReplicaReadsFromPrimary() throws Exception {
+
+        replicateHeartbeat(60_000);
+
+        assertFalse(lagMonitor().isReplicaUsable());
+        assertTrue(lagMonitor().getLagMillis() >= 60_000);
+        assertNotEquals(REPLICA_NAME, this.petService.findById(1).getName());
+    }
+
+    // Heartbeat as if replicated lagMillis ago, then measured
+    private void replicateHeartbeat(long lagMillis) throws Exception {
+        replica.update("UPDATE replica_heartbeat SET beat = ? WHERE id = 1", System.currentTimeMillis() - lagMillis);
+        lagMonitor().check();
+    }
+
+    private ReplicaLagMonitor lagMonitor() throws Exception {
+        return this.dataSource.unwrap(ReplicaRoutingDataSource.class).getLagMonitor();
+    }
+
+}
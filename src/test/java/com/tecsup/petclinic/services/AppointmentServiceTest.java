@@ -0,0 +1,162 @@
+package com.tecsup.petclinic.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.dtos.SlotDTO;
+import com.tecsup.petclinic.dtos.VisitDTO;
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.exceptions.SlotNotAvailableException;
+import com.tecsup.petclinic.repositories.VisitRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bookings of vet 5 : radiology, 8 to 18
+ */
+@SpringBootTest
+@Slf4j
+public class AppointmentServiceTest {
+
+	private static final int VET_ID = 5;
+
+	private static final int PET_ID = 5;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private VisitRepository visitRepository;
+
+	@Autowired
+	private PetService petService;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	/**
+	 * Test that of many concurrent bookings of one slot only one succeeds
+	 */
+	@Test
+	public void testConcurrentBookings() throws Exception {
+
+		int THREADS = 8;
+		LocalDate DATE = LocalDate.now().plusDays(42);
+		LocalTime TIME = LocalTime.of(11, 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> bookings = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				bookings.add(executor.submit(() -> {
+					start.await();
+					try {
+						this.appointmentService.book(VET_ID, appointment(DATE, TIME));
+						return true;
+					} catch (SlotNotAvailableException e) {
+						return false;
+					}
+				}));
+			}
+			start.countDown();
+
+			int booked = 0;
+			for (Future<Boolean> booking : bookings)
+				if (booking.get())
+					booked++;
+
+			assertEquals(1, booked);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertFalse(startsOf(this.appointmentService.findSlots(VET_ID, DATE, null)).contains(TIME));
+	}
+
+	/**
+	 * Test that a slot booked behind the agenda (as by another instance)
+	 * is refused by the unique key, and then left out of the free slots
+	 */
+	@Test
+	public void testBookingOutsideTheAgenda() throws Exception {
+
+		LocalDate DATE = LocalDate.now().plusDays(43);
+		LocalTime TIME = LocalTime.of(14, 0);
+
+		assertTrue(startsOf(this.appointmentService.findSlots(VET_ID, DATE, null)).contains(TIME));
+
+		Visit visit = new Visit();
+		visit.setPetId(PET_ID);
+		visit.setVetId(VET_ID);
+		visit.setVisitDate(DATE);
+		visit.setVisitTime(TIME);
+		this.visitRepository.save(visit);
+
+		assertThrows(SlotNotAvailableException.class,
+				() -> this.appointmentService.book(VET_ID, appointment(DATE, TIME)));
+
+		assertFalse(startsOf(this.appointmentService.findSlots(VET_ID, DATE, null)).contains(TIME));
+	}
+
+	/**
+	 * Test that the slots of a deleted pet, or of the pets of a deleted
+	 * owner, are free again : their visits go with them
+	 */
+	@Test
+	public void testDeletesFreeTheSlots() throws Exception {
+
+		LocalDate DATE = LocalDate.now().plusDays(44);
+		LocalTime PET_TIME = LocalTime.of(9, 0);
+		LocalTime OWNER_TIME = LocalTime.of(9, 30);
+
+		OwnerDTO owner = this.ownerService.create(OwnerDTO.builder().firstName("Ada").lastName("Booked")
+				.address("1 Main St.").city("Madison").telephone("6085550002").build());
+		PetDTO pet = this.petService.create(PetDTO.builder().name("Booked").typeId(1)
+				.ownerId(owner.getId().intValue()).build());
+		PetDTO otherPet = this.petService.create(PetDTO.builder().name("Booked").typeId(1)
+				.ownerId(owner.getId().intValue()).build());
+
+		this.appointmentService.book(VET_ID, appointment(pet.getId(), DATE, PET_TIME));
+		this.appointmentService.book(VET_ID, appointment(otherPet.getId(), DATE, OWNER_TIME));
+		assertFalse(startsOf(this.appointmentService.findSlots(VET_ID, DATE, null)).contains(PET_TIME));
+
+		this.petService.delete(pet.getId());
+		assertTrue(startsOf(this.appointmentService.findSlots(VET_ID, DATE, null)).contains(PET_TIME));
+		assertFalse(startsOf(this.appointmentService.findSlots(VET_ID, DATE, null)).contains(OWNER_TIME));
+
+		this.ownerService.delete(owner.getId());
+		assertTrue(startsOf(this.appointmentService.findSlots(VET_ID, DATE, null)).contains(OWNER_TIME));
+	}
+
+	private static VisitDTO appointment(LocalDate date, LocalTime time) {
+		return appointment(PET_ID, date, time);
+	}
+
+	private static VisitDTO appointment(Integer petId, LocalDate date, LocalTime time) {
+		return VisitDTO.builder().petId(petId).visitDate(date).visitTime(time).description("x-ray").build();
+	}
+
+	private static List<LocalTime> startsOf(List<SlotDTO> slots) {
+		return slots.stream().map(SlotDTO::getStart).toList();
+	}
+
+}
@@ -0,0 +1,264 @@
+package com.tecsup.petclinic.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.dtos.ChangeEventDTO;
+import com.tecsup.petclinic.dtos.ChangeFeedDTO;
+import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.dtos.SpecialtyDTO;
+import com.tecsup.petclinic.entities.ChangeEvent;
+import com.tecsup.petclinic.entities.ChangeEvent.Kind;
+import com.tecsup.petclinic.entities.ChangeEvent.Operation;
+import com.tecsup.petclinic.exceptions.VersionConflictException;
+import com.tecsup.petclinic.repositories.ChangeEventRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Outbox, feed and relay, with the in-memory sink. The relay is left to
+ * the tests, not run on schedule.
+ */
+@SpringBootTest(properties = {
+		"petclinic.changes.sink=memory",
+		"petclinic.changes.relay-ms=3600000" })
+@Slf4j
+public class ChangeServiceTest {
+
+	@Autowired
+	private ChangeService changeService;
+
+	@Autowired
+	private ChangeRelay changeRelay;
+
+	@Autowired
+	private InMemoryChangeSink sink;
+
+	@Autowired
+	private PetService petService;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private SpecialtyService specialtyService;
+
+	@Autowired
+	private ChangeEventRepository changeEventRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ObjectProvider<ChangeSink> sinkProvider;
+
+	/**
+	 * Test that the writes of an owner and its pet show in the feed, in order,
+	 * with the pet deleted along with the owner
+	 */
+	@Test
+	public void testFeed() throws Exception {
+
+		long since = latest();
+
+		OwnerDTO owner = this.ownerService.create(OwnerDTO.builder().firstName("Ada").lastName("Feed")
+				.address("1 Main St.").city("Madison").telephone("6085550001").build());
+		PetDTO pet = this.petService.create(PetDTO.builder().name("Fed").typeId(1)
+				.ownerId(owner.getId().intValue()).build());
+		owner.setCity("Monona");
+		this.ownerService.update(owner);
+		this.ownerService.delete(owner.getId());
+
+		List<String> changes = changesOf(since, "OWNER " + owner.getId(), "PET " + pet.getId());
+
+		assertEquals(List.of("OWNER CREATE", "PET CREATE", "OWNER UPDATE", "PET DELETE", "OWNER DELETE"), changes);
+	}
+
+	/**
+	 * Test that an update of a specialty records an update of each of its vets
+	 */
+	@Test
+	public void testSpecialtyUpdateChangesItsVets() throws Exception {
+
+		final int SPECIALTY_ID = 1;	// radiology, of the vets 2 and 5
+
+		long since = latest();
+
+		SpecialtyDTO specialty = this.specialtyService.findById(SPECIALTY_ID);
+		this.specialtyService.update(specialty);
+
+		List<String> changes = changesOf(since, "SPECIALTY " + SPECIALTY_ID, "VET 2", "VET 5", "VET 3");
+
+		assertEquals(List.of("SPECIALTY UPDATE", "VET UPDATE", "VET UPDATE"), changes);
+	}
+
+	/**
+	 * Test that a rejected update leaves no change
+	 */
+	@Test
+	public void testFailedUpdateHasNoChange() throws Exception {
+
+		PetDTO pet = this.petService.create(PetDTO.builder().name("Stale").typeId(1).ownerId(1).build());
+		long since = latest();
+
+		try {
+			pet.setVersion(pet.getVersion() + 5);
+			assertThrows(VersionConflictException.class, () -> this.petService.update(pet));
+
+			assertTrue(changesOf(since, "PET " + pet.getId()).isEmpty());
+		} finally {
+			this.petService.delete(pet.getId());
+		}
+	}
+
+	/**
+	 * Test that a change committed after a change with a higher id, already
+	 * read, is not skipped by the cursor
+	 */
+	@Test
+	public void testLateCommitIsNotSkipped() throws Exception {
+
+		final long LATE_PET_ID = 999_999;
+
+		CountDownLatch written = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		CompletableFuture<Void> late = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+			this.changeEventRepository.saveAndFlush(new ChangeEvent(Kind.PET, LATE_PET_ID, Operation.UPDATE, null));
+			written.countDown();
+			try {
+				commit.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+
+		PetDTO pet = null;
+		try {
+			assertTrue(written.await(10, TimeUnit.SECONDS));
+			pet = this.petService.create(PetDTO.builder().name("Early").typeId(1).ownerId(1).build());
+
+			long since = latest();
+
+			commit.countDown();
+			late.get(10, TimeUnit.SECONDS);
+
+			assertEquals(List.of("PET UPDATE"), changesOf(since, "PET " + LATE_PET_ID));
+		} finally {
+			commit.countDown();
+			if (pet != null)
+				this.petService.delete(pet.getId());
+		}
+	}
+
+	/**
+	 * Test that the relay sends a change once to the sink
+	 */
+	@Test
+	public void testRelay() throws Exception {
+
+		this.changeRelay.relay();
+
+		PetDTO pet = this.petService.create(PetDTO.builder().name("Relayed").typeId(1).ownerId(1).build());
+
+		try {
+			assertTrue(this.changeRelay.relay() >= 1);
+			assertEquals(0, this.changeRelay.relay());
+
+			long sent = this.sink.getChanges().stream()
+					.filter(change -> change.getEntityId() == pet.getId().longValue())
+					.filter(change -> change.getOperation().name().equals("CREATE"))
+					.count();
+			assertEquals(1, sent);
+		} finally {
+			this.petService.delete(pet.getId());
+		}
+	}
+
+	/**
+	 * Test that the relays of two instances, run together, send each change
+	 * once and number each change once
+	 */
+	@Test
+	public void testRelaysOfTwoInstances() throws Exception {
+
+		// Another instance, on the same database and sink, one change per batch
+		ChangeRelay other = new ChangeRelay(this.changeEventRepository, this.sinkProvider, this.transactionManager, 1);
+
+		this.changeRelay.relay();
+
+		List<Integer> petIds = new ArrayList<>();
+		try {
+			for (int i = 0; i < 5; i++)
+				petIds.add(this.petService.create(PetDTO.builder().name("Relayed " + i).typeId(1).ownerId(1).build()).getId());
+
+			CompletableFuture<Integer> otherSent = CompletableFuture.supplyAsync(other::relay);
+			int sent = this.changeRelay.relay() + otherSent.get(10, TimeUnit.SECONDS);
+
+			assertEquals(5, sent);
+			for (Integer petId : petIds) {
+				long created = this.sink.getChanges().stream()
+						.filter(change -> change.getEntityId() == petId.longValue())
+						.filter(change -> change.getOperation().name().equals("CREATE"))
+						.count();
+				assertEquals(1, created);
+			}
+
+			List<Long> seqs = this.sink.getChanges().stream().map(ChangeEventDTO::getSeq).toList();
+			assertEquals(seqs.size(), seqs.stream().distinct().count());
+		} finally {
+			for (Integer petId : petIds)
+				this.petService.delete(petId);
+		}
+	}
+
+	// Cursor after all the current committed changes
+	private long latest() {
+
+		this.changeRelay.sequence();
+
+		ChangeFeedDTO feed = this.changeService.findChanges(null, 100);
+		while (feed.isMore())
+			feed = this.changeService.findChanges(feed.getNext(), 100);
+
+		return feed.getNext();
+	}
+
+	// Changes after the cursor to the given "KIND id" entities, as "KIND OPERATION"
+	private List<String> changesOf(long since, String... entities) {
+
+		List<String> keys = List.of(entities);
+		List<String> changes = new ArrayList<>();
+
+		this.changeRelay.sequence();
+
+		ChangeFeedDTO feed;
+		do {
+			feed = this.changeService.findChanges(since, 2);
+			for (ChangeEventDTO change : feed.getChanges())
+				if (keys.contains(change.getEntityType() + " " + change.getEntityId()))
+					changes.add(change.getEntityType() + " " + change.getOperation());
+			since = feed.getNext();
+		} while (feed.isMore());
+
+		log.info("{}", changes);
+		return changes;
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.tecsup.petclinic.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.dtos.StatsDTO;
+import com.tecsup.petclinic.dtos.VisitDTO;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@Slf4j
+public class ClinicStatsTest {
+
+	@Autowired
+	private ClinicStats clinicStats;
+
+	@Autowired
+	private PetService petService;
+
+	@Autowired
+	private OwnerService ownerService;
+
+	@Autowired
+	private VisitService visitService;
+
+	/**
+	 * Test the counters of a pet and its visit, created then deleted
+	 */
+	@Test
+	public void testPetAndVisitCounters() throws Exception {
+
+		int TYPE_ID = 4;
+		int VET_ID = 5;
+		BigDecimal COST = new BigDecimal("20.50");
+
+		this.clinicStats.reconcile();
+		StatsDTO before = this.clinicStats.snapshot();
+
+		PetDTO pet = this.petService.create(PetDTO.builder().name("Counted").typeId(TYPE_ID).ownerId(1).build());
+		this.visitService.create(VisitDTO.builder().petId(pet.getId()).vetId(VET_ID)
+				.visitDate(LocalDate.of(2030, 3, 1)).cost(COST).build());
+
+		StatsDTO after = this.clinicStats.snapshot();
+
+		assertEquals(before.getPets() + 1, after.getPets());
+		assertEquals(before.getPetsByType().get(TYPE_ID) + 1, after.getPetsByType().get(TYPE_ID));
+		assertEquals(before.getVisits() + 1, after.getVisits());
+		assertEquals(before.getVisitsByVet().getOrDefault(VET_ID, 0L) + 1, after.getVisitsByVet().get(VET_ID));
+		assertEquals(before.getRevenue().add(COST), after.getRevenue());
+
+		// The visit goes with the pet, counted again after the commit
+		LocalDateTime deleted = LocalDateTime.now();
+		this.petService.delete(pet.getId());
+
+		StatsDTO recounted = awaitRecount(deleted);
+		recounted.setReconciledAt(before.getReconciledAt());
+		assertEquals(before, recounted);
+	}
+
+	/**
+	 * Test the counters of an owner moving to another city, then deleted
+	 * with its pet
+	 */
+	@Test
+	public void testOwnerCounters() throws Exception {
+
+		String CITY = "Statsville";
+		String NEW_CITY = "Madison";
+
+		this.clinicStats.reconcile();
+		StatsDTO before = this.clinicStats.snapshot();
+
+		OwnerDTO owner = this.ownerService.create(OwnerDTO.builder().firstName("Ada").lastName("Counter")
+				.address("1 Main St.").city(CITY).telephone("6085550000").build());
+
+		assertEquals(before.getOwners() + 1, this.clinicStats.snapshot().getOwners());
+		assertEquals(1L, this.clinicStats.snapshot().getOwnersByCity().get(CITY));
+
+		owner.setCity(NEW_CITY);
+		LocalDateTime updated = LocalDateTime.now();
+		this.ownerService.update(owner);
+
+		StatsDTO moved = awaitRecount(updated);
+		assertFalse(moved.getOwnersByCity().containsKey(CITY));
+		assertEquals(before.getOwnersByCity().getOrDefault(NEW_CITY, 0L) + 1, moved.getOwnersByCity().get(NEW_CITY));
+
+		this.petService.create(PetDTO.builder().name("Counted").typeId(2).ownerId(owner.getId().intValue()).build());
+
+		// The pet goes with the owner
+		LocalDateTime deleted = LocalDateTime.now();
+		this.ownerService.delete(owner.getId());
+
+		StatsDTO recounted = awaitRecount(deleted);
+		recounted.setReconciledAt(before.getReconciledAt());
+		assertEquals(before, recounted);
+	}
+
+	// Counters once recounted after the given time, off the test thread
+	private StatsDTO awaitRecount(LocalDateTime after) throws InterruptedException {
+
+		for (int i = 0; i < 100; i++) {
+			StatsDTO stats = this.clinicStats.snapshot();
+			if (stats.getReconciledAt().isAfter(after))
+				return stats;
+			Thread.sleep(100);
+		}
+		throw new AssertionError("No recount after " + after);
+	}
+
+}
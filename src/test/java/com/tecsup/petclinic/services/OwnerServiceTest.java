@@ -1,10 +1,168 @@
 package com.tecsup.petclinic.services;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.tecsup.petclinic.dtos.OwnerDTO;
+import com.tecsup.petclinic.entities.ChangeEvent;
+import com.tecsup.petclinic.entities.ChangeEvent.Kind;
+import com.tecsup.petclinic.entities.ChangeEvent.Operation;
+import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.repositories.ChangeEventRepository;
+import com.tecsup.petclinic.repositories.OwnerRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
 
 @SpringBootTest
 @Slf4j
 public class OwnerServiceTest {
-	// TO DO
+
+    @Autowired
+    private OwnerService ownerService;
+
+    @Autowired
+    private OwnerSearchIndex searchIndex;
+
+    @Autowired
+    private ChangeRelay changeRelay;
+
+    @Autowired
+    private OwnerRepository ownerRepository;
+
+    @Autowired
+    private ChangeEventRepository changeEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Test searching owners by the start of a word
+     */
+    @Test
+    public void testSearchOwnersByPrefix() {
+
+        assertTrue(searchIndex.isReady());
+
+        List<OwnerDTO> owners = this.ownerService.search("fran", 10);
+
+        assertEquals(1L, owners.get(0).getId());
+        assertEquals("Franklin", owners.get(0).getLastName());
+    }
+
+    /**
+     * Test searching owners with a misspelled name
+     */
+    @Test
+    public void testSearchOwnersFuzzy() {
+
+        List<OwnerDTO> owners = this.ownerService.search("Fraklin", 10);
+
+        assertEquals(1L, owners.get(0).getId());
+    }
+
+    /**
+     * Test that every word of the query must match, in any field
+     */
+    @Test
+    public void testSearchOwnersAllWords() {
+
+        List<OwnerDTO> owners = this.ownerService.search("davis windsor", 10);
+
+        assertEquals(1, owners.size());
+        assertEquals(4L, owners.get(0).getId());
+    }
+
+    /**
+     * Test that created, updated and deleted owners are reflected in the search
+     */
+    @Test
+    public void testSearchFollowsChanges() throws OwnerNotFoundException {
+
+        OwnerDTO owner = this.ownerService.create(OwnerDTO.builder()
+                .firstName("Zacarias")
+                .lastName("Quiroga")
+                .address("45 Grau St.")
+                .city("Tacna")
+                .telephone("952000111")
+                .build());
+
+        assertTrue(ids(this.ownerService.search("quiroga tacna", 10)).contains(owner.getId()));
+
+        owner.setLastName("Huaman");
+        this.ownerService.update(owner);
+
+        assertFalse(ids(this.ownerService.search("quiroga", 10)).contains(owner.getId()));
+        assertTrue(ids(this.ownerService.search("huaman", 10)).contains(owner.getId()));
+
+        this.ownerService.delete(owner.getId());
+
+        assertFalse(ids(this.ownerService.search("huaman", 10)).contains(owner.getId()));
+    }
+
+    /**
+     * Test that an owner created on another instance, only known from the
+     * change feed, is found after a refresh
+     */
+    @Test
+    public void testSearchFollowsOtherInstances() throws OwnerNotFoundException {
+
+        final long OTHER_INSTANCE_ID = 900_000;
+
+        // The write of the other instance : the row and its change
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO owners (id, first_name, last_name, address, city, telephone) "
+                    + "VALUES (?, 'Eulalia', 'Sotomayor', '12 Lima St.', 'Puno', '951000222')", OTHER_INSTANCE_ID);
+            changeEventRepository.save(new ChangeEvent(Kind.OWNER, OTHER_INSTANCE_ID, Operation.CREATE, 0));
+        });
+
+        try {
+            assertFalse(ids(this.ownerService.search("sotomayor", 10)).contains(OTHER_INSTANCE_ID));
+
+            this.changeRelay.sequence();
+            this.searchIndex.refresh();
+
+            assertTrue(ids(this.ownerService.search("sotomayor", 10)).contains(OTHER_INSTANCE_ID));
+        } finally {
+            this.ownerService.delete(OTHER_INSTANCE_ID);
+        }
+    }
+
+    /**
+     * Test that an index dropped over max-owners is rebuilt by a refresh once
+     * the owners are back under it
+     */
+    @Test
+    public void testDroppedIndexIsRebuilt() {
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        OwnerSearchIndex index = new OwnerSearchIndex(ownerRepository, changeEventRepository,
+                (int) ownerRepository.count());
+
+        transaction.executeWithoutResult(status -> index.rebuild());
+        assertTrue(index.isReady());
+
+        // One more owner than max-owners, never committed
+        index.put(OwnerDTO.builder().id(Long.MAX_VALUE).firstName("Over").lastName("Limit").build());
+        assertFalse(index.isReady());
+
+        transaction.executeWithoutResult(status -> index.refresh());
+        assertTrue(index.isReady());
+        assertTrue(ids(index.search("franklin", 10)).contains(1L));
+    }
+
+    private static List<Long> ids(List<OwnerDTO> owners) {
+        return owners.stream().map(OwnerDTO::getId).toList();
+    }
+
 }
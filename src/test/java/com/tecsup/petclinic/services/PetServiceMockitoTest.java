@@ -45,8 +45,8 @@ public class PetServiceMockitoTest {
 
         Pet petExpected = new Pet(1,"Leo",1,1, null);
 
-        Mockito.when(this.repository.findById(1))
-                .thenReturn((Optional.of(petExpected)));
+        Mockito.when(this.repository.findDtoById(1))
+                .thenReturn((Optional.of(this.petMapper.mapToDto(petExpected))));
         PetDTO pet = null;
 
         try {
@@ -71,8 +71,8 @@ public class PetServiceMockitoTest {
 
         List<Pet> petsExpected = TObjectCreator.getPetsForFindByName();
 
-        Mockito.when(this.repository.findByName(FIND_NAME))
-                .thenReturn(petsExpected);
+        Mockito.when(this.repository.findDtoByName(FIND_NAME))
+                .thenReturn(this.petMapper.mapToDtoList(petsExpected));
 
         List<PetDTO> pets = this.petService.findByName(FIND_NAME);
 
@@ -183,12 +183,21 @@ public class PetServiceMockitoTest {
         PetDTO newPetDTOUpdate = newPetDTOCreate;
         Pet newPetUpdate = this.petMapper.mapToEntity(newPetDTOUpdate);
 
-        // Create
-        Mockito.when(this.repository.save(newPetUpdate))
-                .thenReturn(newPetUpdate);
+        // One row updated
+        Mockito.when(this.repository.updateById(Mockito.eq(newPetUpdate.getId()), Mockito.isNull(), Mockito.eq(UP_PET_NAME),
+                        Mockito.eq(UP_TYPE_ID), Mockito.eq(UP_OWNER_ID), Mockito.any()))
+                .thenReturn(1);
+        // Read back as stored
+        Mockito.when(this.repository.findDtoById(newPetUpdate.getId()))
+                .thenReturn(Optional.of(newPetDTOUpdate));
 
         // Execute update
-        PetDTO petDTOUpdate = this.petService.update(newPetDTOCreate);
+        PetDTO petDTOUpdate = null;
+        try {
+            petDTOUpdate = this.petService.update(newPetDTOCreate);
+        } catch (PetNotFoundException e) {
+            fail(e.getMessage());
+        }
         log.info("{}" + petDTOUpdate);
 
         //            EXPECTED           ACTUAL
@@ -218,9 +227,8 @@ public class PetServiceMockitoTest {
 
         // ------------ Delete ---------------
 
-        Mockito.doNothing().when(this.repository).delete(newPetCreate);
-        Mockito.when(this.repository.findById(newPetCreate.getId()))
-                .thenReturn(Optional.of(newPetCreate));
+        Mockito.when(this.repository.deleteOneById(newPetCreate.getId(), null))
+                .thenReturn(1);
 
         try {
             this.petService.delete(petDTOCreate.getId());
@@ -230,7 +238,7 @@ public class PetServiceMockitoTest {
 
         // ------------ Validate ---------------
 
-        Mockito.when(this.repository.findById(newPetCreate.getId()))
+        Mockito.when(this.repository.findDtoById(newPetCreate.getId()))
                 .thenReturn(Optional.ofNullable(null));
 
         try {
@@ -242,4 +250,16 @@ public class PetServiceMockitoTest {
 
     }
 
+    /**
+     *
+     */
+    @Test
+    public void testDeletePetNotFound() {
+
+        Mockito.when(this.repository.deleteOneById(999, null))
+                .thenReturn(0);
+
+        assertThrows(PetNotFoundException.class, () -> this.petService.delete(999));
+    }
+
 }
\ No newline at end of file
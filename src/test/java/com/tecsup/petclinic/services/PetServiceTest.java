@@ -6,14 +6,18 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.tecsup.petclinic.dtos.PetDTO;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.tecsup.petclinic.entities.Pet;
 import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.mapper.PetMapper;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,6 +28,12 @@ public class PetServiceTest {
     @Autowired
     private PetService petService ;
 
+    @Autowired
+    private PetMapper petMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Test
     public void testFindPetById() {
 
@@ -55,6 +65,20 @@ public class PetServiceTest {
         assertEquals(SIZE_EXPECTED, pets.size());
     }
 
+    /**
+     * Test that the DTO projection reads the same pets as the entities,
+     * without leaving any entity in the persistence context
+     */
+    @Test
+    @Transactional(readOnly = true)
+    public void testFindAllPetsAsDto() {
+
+        List<PetDTO> pets = this.petService.findAllDto();
+
+        assertEquals(0, this.entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+        assertEquals(this.petMapper.mapToDtoList(this.petService.findAll()), pets);
+    }
+
     /**
      *
      */
@@ -117,7 +141,7 @@ public class PetServiceTest {
      *
      */
     @Test
-    public void testUpdatePet() {
+    public void testUpdatePet() throws PetNotFoundException {
 
         String PET_NAME = "Bear";
         int OWNER_ID = 1;
@@ -156,6 +180,30 @@ public class PetServiceTest {
         assertEquals(UP_TYPE_ID, upgradePetDTO.getOwnerId());
     }
 
+    /**
+     * Test that an update without birth date keeps the stored one, also in
+     * the returned pet
+     */
+    @Test
+    public void testUpdatePetKeepsBirthDate() throws PetNotFoundException {
+
+        String BIRTH_DATE = "2019-04-12";
+
+        PetDTO petDTOCreated = this.petService.create(PetDTO.builder()
+                .name("Dated").ownerId(1).typeId(1).birthDate(BIRTH_DATE).build());
+
+        try {
+            PetDTO updatedPetDTO = this.petService.update(PetDTO.builder().id(petDTOCreated.getId())
+                    .name("Dated2").ownerId(1).typeId(1).build());
+
+            assertEquals("Dated2", updatedPetDTO.getName());
+            assertEquals(BIRTH_DATE, updatedPetDTO.getBirthDate());
+            assertEquals(BIRTH_DATE, this.petService.findById(petDTOCreated.getId()).getBirthDate());
+        } finally {
+            this.petService.delete(petDTOCreated.getId());
+        }
+    }
+
     /**
      *
      */
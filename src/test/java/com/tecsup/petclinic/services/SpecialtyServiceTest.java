@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
 import com.tecsup.petclinic.dtos.SpecialtyDTO;
 import org.junit.jupiter.api.Test;
 import java.util.List;
@@ -71,6 +72,25 @@ public class SpecialtyServiceTest {
         assertTrue(specialties.size() >= MIN_SIZE_EXPECTED);
     }
 
+    /**
+     * Test reading specialties with keyset pagination
+     */
+    @Test
+    public void testFindSpecialtyPage() {
+
+        int PAGE_SIZE = 2;
+
+        KeysetPageDTO<SpecialtyDTO> page = this.specialtyService.findPage(null, PAGE_SIZE);
+
+        assertEquals(PAGE_SIZE, page.getItems().size());
+        assertEquals(1, page.getItems().get(0).getId());
+        assertEquals("2", page.getNext());
+
+        KeysetPageDTO<SpecialtyDTO> nextPage = this.specialtyService.findPage(Integer.valueOf(page.getNext()), PAGE_SIZE);
+
+        assertEquals(3, nextPage.getItems().get(0).getId());
+    }
+
     /**
      * Test creating a new specialty
      */
@@ -1,10 +1,161 @@
 package com.tecsup.petclinic.services;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.tecsup.petclinic.dtos.CacheRegionStatsDTO;
+import com.tecsup.petclinic.dtos.VetDTO;
+import com.tecsup.petclinic.entities.Specialty;
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.mapper.VetMapper;
+import com.tecsup.petclinic.repositories.SpecialtyRepository;
+import com.tecsup.petclinic.repositories.VetRepository;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
 @SpringBootTest
 @Slf4j
 public class VetServiceTest {
-	// TO DO
+
+    @Autowired
+    private VetService vetService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private VetRepository vetRepository;
+
+    @Autowired
+    private SpecialtyRepository specialtyRepository;
+
+    @Autowired
+    private VetMapper vetMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Test finding a vet by ID
+     */
+    @Test
+    public void testFindVetById() {
+
+        String FIRST_NAME_EXPECTED = "James";
+
+        Integer ID = 1;
+
+        VetDTO vet = null;
+
+        try {
+            vet = this.vetService.findById(ID);
+        } catch (VetNotFoundException e) {
+            fail(e.getMessage());
+        }
+        assertEquals(FIRST_NAME_EXPECTED, vet.getFirstName());
+    }
+
+    /**
+     * Test that a repeated lookup is served by the second-level cache
+     */
+    @Test
+    public void testFindVetByIdIsCached() throws VetNotFoundException {
+
+        Integer ID = 2;
+
+        this.vetService.findById(ID);
+        long hits = vetRegionHits();
+
+        this.vetService.findById(ID);
+
+        assertEquals(hits + 1, vetRegionHits());
+    }
+
+    /**
+     * Test that an updated vet is not served stale from the cache
+     */
+    @Test
+    public void testUpdateVetEvictsCache() throws VetNotFoundException {
+
+        String FIRST_NAME = "Gregory";
+        String UP_FIRST_NAME = "Greg";
+
+        VetDTO vetDTO = VetDTO.builder()
+                .firstName(FIRST_NAME)
+                .lastName("House")
+                .build();
+
+        VetDTO vetDTOCreated = this.vetService.create(vetDTO);
+        this.vetService.findById(vetDTOCreated.getId());
+
+        vetDTOCreated.setFirstName(UP_FIRST_NAME);
+        this.vetService.update(vetDTOCreated);
+
+        assertEquals(UP_FIRST_NAME, this.vetService.findById(vetDTOCreated.getId()).getFirstName());
+    }
+
+    /**
+     * Test that listing vets with their specialties takes the same number
+     * of statements whatever the number of vets. The vets added are deleted
+     * at the end, the other tests share the database
+     */
+    @Test
+    public void testFindVetsStatementCountIsConstant() {
+
+        int NEW_VETS = 10;
+
+        long statementsBefore = statementsToListVets();
+
+        List<Specialty> specialties = this.specialtyRepository.findAll();
+        List<Vet> newVets = new ArrayList<>();
+        for (int i = 0; i < NEW_VETS; i++) {
+            Vet vet = new Vet();
+            vet.setFirstName("Batch" + i);
+            vet.setLastName("Specialist");
+            vet.setSpecialties(new HashSet<>(specialties));
+            newVets.add(this.vetRepository.save(vet));
+        }
+
+        try {
+            long statementsAfter = statementsToListVets();
+
+            assertEquals(statementsBefore, statementsAfter);
+        } finally {
+            this.vetRepository.deleteAll(newVets);
+        }
+    }
+
+    /**
+     * Statements executed to list all vets and a page of vets, with specialties
+     */
+    private long statementsToListVets() {
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long before = statistics.getPrepareStatementCount();
+
+        List<VetDTO> vets = this.vetMapper.mapToDtoList(this.vetService.findAll());
+        this.vetService.findPage(null, 100);
+
+        assertFalse(vets.stream().allMatch(vet -> vet.getSpecialties().isEmpty()));
+
+        return statistics.getPrepareStatementCount() - before;
+    }
+
+    private long vetRegionHits() {
+        return this.referenceDataCache.statistics().stream()
+                .filter(stats -> stats.getRegion().equals("vets"))
+                .mapToLong(CacheRegionStatsDTO::getHits)
+                .sum();
+    }
 }
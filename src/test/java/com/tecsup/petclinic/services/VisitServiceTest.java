@@ -0,0 +1,158 @@
+package com.tecsup.petclinic.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tecsup.petclinic.dtos.KeysetPageDTO;
+import com.tecsup.petclinic.dtos.VisitDTO;
+import com.tecsup.petclinic.exceptions.InvalidCursorException;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.exceptions.VisitNotFoundException;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@Slf4j
+public class VisitServiceTest {
+
+	@Autowired
+	private VisitService visitService;
+
+	/**
+	 * Test finding a visit by id
+	 */
+	@Test
+	public void testFindVisitById() {
+
+		String DESCRIPTION_EXPECTED = "neutered";
+
+		VisitDTO visit = null;
+
+		try {
+			visit = this.visitService.findById(3L);
+		} catch (VisitNotFoundException e) {
+			fail(e.getMessage());
+		}
+
+		assertEquals(DESCRIPTION_EXPECTED, visit.getDescription());
+		assertEquals(8, visit.getPetId());
+		assertEquals(LocalDate.of(2009, 6, 4), visit.getVisitDate());
+	}
+
+	/**
+	 * Test creating a visit and reading it back through the pet history
+	 */
+	@Test
+	public void testCreateVisit() throws PetNotFoundException, VetNotFoundException {
+
+		Integer PET_ID = 2;
+		Integer VET_ID = 1;
+
+		VisitDTO visit = VisitDTO.builder()
+				.petId(PET_ID)
+				.vetId(VET_ID)
+				.visitDate(LocalDate.of(2030, 1, 10))
+				.description("vaccination")
+				.cost(new BigDecimal("40.00"))
+				.build();
+
+		VisitDTO newVisit = this.visitService.create(visit);
+
+		assertNotNull(newVisit.getId());
+
+		KeysetPageDTO<VisitDTO> page = this.visitService.findByPet(PET_ID, newVisit.getId() - 1, 10);
+
+		assertEquals(newVisit.getId(), page.getItems().get(0).getId());
+	}
+
+	/**
+	 * Test creating a visit for a pet that does not exist
+	 */
+	@Test
+	public void testCreateVisitPetNotFound() {
+
+		VisitDTO visit = VisitDTO.builder()
+				.petId(99999)
+				.visitDate(LocalDate.of(2030, 1, 10))
+				.build();
+
+		assertThrows(PetNotFoundException.class, () -> this.visitService.create(visit));
+	}
+
+	/**
+	 * Test reading the visits of a pet with keyset pagination
+	 */
+	@Test
+	public void testFindVisitsByPet() {
+
+		KeysetPageDTO<VisitDTO> first = this.visitService.findByPet(7, null, 1);
+
+		assertEquals(1, first.getItems().size());
+		assertEquals(1L, first.getItems().get(0).getId());
+		assertEquals("1", first.getNext());
+
+		KeysetPageDTO<VisitDTO> second = this.visitService.findByPet(7, Long.valueOf(first.getNext()), 1);
+
+		assertEquals(4L, second.getItems().get(0).getId());
+		assertNull(second.getNext());
+	}
+
+	/**
+	 * Test reading the visits of a vet
+	 */
+	@Test
+	public void testFindVisitsByVet() {
+
+		KeysetPageDTO<VisitDTO> page = this.visitService.findByVet(3, null, 10);
+
+		assertEquals(2, page.getItems().size());
+		assertEquals(3L, page.getItems().get(0).getId());
+		assertEquals(4L, page.getItems().get(1).getId());
+	}
+
+	/**
+	 * Test reading a date range page by page, ordered by date
+	 */
+	@Test
+	public void testFindVisitsByDateRange() {
+
+		LocalDate FROM = LocalDate.of(2008, 1, 1);
+		LocalDate TO = LocalDate.of(2011, 12, 31);
+
+		KeysetPageDTO<VisitDTO> first = this.visitService.findByDateRange(FROM, TO, null, 3);
+
+		assertEquals(3, first.getItems().size());
+		assertEquals(4L, first.getItems().get(0).getId());
+		assertEquals(3L, first.getItems().get(1).getId());
+		assertEquals(1L, first.getItems().get(2).getId());
+		assertEquals("2010-03-04_1", first.getNext());
+
+		KeysetPageDTO<VisitDTO> second = this.visitService.findByDateRange(FROM, TO, first.getNext(), 3);
+
+		assertEquals(1, second.getItems().size());
+		assertEquals(2L, second.getItems().get(0).getId());
+		assertNull(second.getNext());
+	}
+
+	/**
+	 * Test a date range cursor that was not returned by a previous page
+	 */
+	@Test
+	public void testFindVisitsByDateRangeInvalidCursor() {
+
+		assertThrows(InvalidCursorException.class, () -> this.visitService
+				.findByDateRange(LocalDate.of(2008, 1, 1), LocalDate.of(2011, 12, 31), "tomorrow", 3));
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.tecsup.petclinic.util;
+
+import com.tecsup.petclinic.config.SqlCapture;
+import com.tecsup.petclinic.webs.QueryMetricsInterceptor;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MockMvc matchers on the X-SQL-* headers, to keep the number of SQL
+ * statements of an endpoint within a budget.
+ *
+ * 	.andExpect(SqlBudget.maxStatements(1))
+ *
+ * The writes take a block of ids from id_generators once in 50 inserts :
+ * their budget leaves these statements out, recorded on the test thread.
+ *
+ * 	SqlBudget.recordStatements();
+ * 	mockMvc.perform(put(...)).andExpect(SqlBudget.maxStatementsWithoutIdBlocks(2))
+ *
+ * @author jgomezm
+ */
+public class SqlBudget {
+
+	/**
+	 * The request ran at most the given number of statements
+	 *
+	 * @param max
+	 * @return
+	 */
+	public static ResultMatcher maxStatements(int max) {
+		return result -> {
+			String statements = result.getResponse().getHeader(QueryMetricsInterceptor.HEADER_STATEMENTS);
+			assertNotNull(statements, "No " + QueryMetricsInterceptor.HEADER_STATEMENTS + " header");
+			assertTrue(Long.parseLong(statements) <= max,
+					"Expected at most " + max + " SQL statements but ran " + statements);
+		};
+	}
+
+	/**
+	 * Record the statements of the next request, for {@link #maxStatementsWithoutIdBlocks(int)}
+	 */
+	public static void recordStatements() {
+		SqlCapture.start();
+	}
+
+	/**
+	 * The request recorded since {@link #recordStatements()} ran at most the given
+	 * number of statements, besides the blocks of ids
+	 *
+	 * @param max
+	 * @return
+	 */
+	public static ResultMatcher maxStatementsWithoutIdBlocks(int max) {
+		return result -> {
+			List<String> statements = SqlCapture.stop().stream()
+					.map(SqlCapture.Statement::sql)
+					.filter(sql -> !sql.contains("id_generators"))
+					.toList();
+			assertTrue(statements.size() <= max,
+					"Expected at most " + max + " SQL statements but ran " + statements);
+		};
+	}
+
+	/**
+	 * The request was not flagged as a possible N+1
+	 *
+	 * @return
+	 */
+	public static ResultMatcher noNPlusOne() {
+		return result -> assertNull(result.getResponse().getHeader(QueryMetricsInterceptor.HEADER_N_PLUS_ONE),
+				"Possible N+1 : " + result.getResponse().getHeader(QueryMetricsInterceptor.HEADER_STATEMENTS)
+						+ " SQL statements");
+	}
+
+}
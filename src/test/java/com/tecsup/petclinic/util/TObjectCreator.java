@@ -43,11 +43,11 @@ public class TObjectCreator {
 	}
 	public static List<PetDTO> getAllPetTOs() {
 		List<PetDTO> petTOs  = new ArrayList<PetDTO>();
-		petTOs.add(new PetDTO(1,"Leo",1,1, "2000-09-07"));
-		petTOs.add(new PetDTO(2,"Basil",6,2, "2002-08-06"));
-		petTOs.add(new PetDTO(3,"Rosy",2,3, "2001-04-17"));
-		petTOs.add(new PetDTO(4,"Jewel",2,3, "2000-03-07"));
-		petTOs.add(new PetDTO(5,"Iggy",3,4, "2000-11-30"));
+		petTOs.add(new PetDTO(1,"Leo",1,1, "2000-09-07", null));
+		petTOs.add(new PetDTO(2,"Basil",6,2, "2002-08-06", null));
+		petTOs.add(new PetDTO(3,"Rosy",2,3, "2001-04-17", null));
+		petTOs.add(new PetDTO(4,"Jewel",2,3, "2000-03-07", null));
+		petTOs.add(new PetDTO(5,"Iggy",3,4, "2000-11-30", null));
 		return petTOs;
 	}
 
@@ -73,14 +73,14 @@ public class TObjectCreator {
 	}
 
 	public static PetDTO getPetTO() {
-		return new PetDTO(1,"Leo",1,1, "2000-09-07");
+		return new PetDTO(1,"Leo",1,1, "2000-09-07", null);
 	}
 
 	public static PetDTO newPetTO() {
-		return new PetDTO(-1,"Beethoven",1,1, "2020-05-20");
+		return new PetDTO(-1,"Beethoven",1,1, "2020-05-20", null);
 	}
 
 	public static PetDTO newPetTOForDelete() {
-		return new PetDTO(10000,"Beethoven3",1,1, "2020-05-20");
+		return new PetDTO(10000,"Beethoven3",1,1, "2020-05-20", null);
 	}
 }
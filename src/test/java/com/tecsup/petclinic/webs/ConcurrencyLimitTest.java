@@ -0,0 +1,108 @@
+package com.tecsup.petclinic.webs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for the concurrency limits per endpoint
+ *
+ * @author jgomezm
+ */
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+		"petclinic.concurrency.initial-limit=1",
+		"petclinic.concurrency.max-limit=1" })
+@Slf4j
+public class ConcurrencyLimitTest {
+
+	private static final long MS = 1_000_000;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ConcurrencyLimitInterceptor interceptor;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Test that an endpoint at its limit is answered 503 at once, while the
+	 * other endpoints are still served
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testShedOverLimit() throws Exception {
+
+		AdaptiveLimit pets = this.interceptor.getLimit("GET", "/pets");
+
+		// The only place, taken by a list request in progress
+		assertTrue(pets.tryAcquire());
+		try {
+			this.mockMvc.perform(get("/pets"))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+			this.mockMvc.perform(get("/pets/1"))
+					.andExpect(status().isOk());
+		} finally {
+			pets.release(MS, false);
+		}
+
+		this.mockMvc.perform(get("/pets"))
+				.andExpect(status().isOk());
+
+		assertEquals(1.0, this.meterRegistry.get("petclinic.request.shed")
+				.tag("method", "GET").tag("uri", "/pets").counter().count());
+	}
+
+	/**
+	 * Test that the limit grows while requests stay fast and shrinks when
+	 * they get slow or refused
+	 */
+	@Test
+	public void testAdaptiveLimit() {
+
+		AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, 0.5, 2.0, 50 * MS, 100);
+
+		// Fast requests using the whole limit
+		for (int i = 0; i < 10; i++) {
+			int admitted = 0;
+			while (limit.tryAcquire())
+				admitted++;
+			assertEquals(limit.getLimit(), admitted);
+			for (int j = 0; j < admitted; j++)
+				limit.release(10 * MS, false);
+		}
+		assertEquals(10, limit.getLimit());
+
+		// Twice the lowest latency, over min-latency
+		assertTrue(limit.tryAcquire());
+		limit.release(200 * MS, false);
+		assertEquals(5, limit.getLimit());
+
+		assertTrue(limit.tryAcquire());
+		limit.release(10 * MS, true);
+		assertEquals(2, limit.getLimit());
+
+		assertTrue(limit.tryAcquire());
+		assertTrue(limit.tryAcquire());
+		assertFalse(limit.tryAcquire());
+		assertEquals(2, limit.getInFlight());
+	}
+
+}
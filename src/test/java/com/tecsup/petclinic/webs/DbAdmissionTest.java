@@ -0,0 +1,58 @@
+package com.tecsup.petclinic.webs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for the database admission control
+ *
+ * @author jgomezm
+ */
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+		"petclinic.db.admission.enabled=true",
+		"petclinic.db.admission.permits=1",
+		"petclinic.db.admission.max-waiting=1",
+		"petclinic.db.admission.timeout-ms=100" })
+@Slf4j
+public class DbAdmissionTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private DataSource dataSource;
+
+	/**
+	 * Test that a request is answered 503 while every permit is taken, and
+	 * served again once the connection is returned
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testDatabaseBusy() throws Exception {
+
+		try (Connection connection = dataSource.getConnection()) {
+
+			this.mockMvc.perform(get("/pets/1"))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+		}
+
+		this.mockMvc.perform(get("/pets/1"))
+				.andExpect(status().isOk());
+	}
+
+}
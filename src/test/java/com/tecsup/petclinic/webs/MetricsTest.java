@@ -0,0 +1,88 @@
+package com.tecsup.petclinic.webs;
+
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for the Prometheus metrics
+ *
+ * @author jgomezm
+ */
+@AutoConfigureObservability(tracing = false)
+@AutoConfigureMockMvc
+@SpringBootTest
+@Slf4j
+public class MetricsTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PrometheusMeterRegistry registry;
+
+	/**
+	 * Test that a request shows up in the endpoint, service and query metrics
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRequestMetrics() throws Exception {
+
+		this.mockMvc.perform(get("/pets/1"))
+				.andExpect(status().isOk());
+
+		String scrape = registry.scrape();
+
+		assertThat(scrape, containsString("http_server_requests_seconds_bucket{"));
+		assertThat(scrape, containsString("uri=\"/pets/{id}\""));
+		assertThat(scrape, containsString("petclinic_service_seconds_bucket{"));
+		assertThat(scrape, containsString("class=\"com.tecsup.petclinic.services.PetServiceImpl\""));
+		assertThat(scrape, containsString("petclinic_request_queries_count{"));
+	}
+
+	/**
+	 * Test the SQL statistics headers of a list request
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSqlStatsHeaders() throws Exception {
+
+		String rows = this.mockMvc.perform(get("/pets"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(QueryMetricsInterceptor.HEADER_STATEMENTS, "1"))
+				.andExpect(header().exists(QueryMetricsInterceptor.HEADER_TIME))
+				.andExpect(header().doesNotExist(QueryMetricsInterceptor.HEADER_N_PLUS_ONE))
+				.andReturn().getResponse().getHeader(QueryMetricsInterceptor.HEADER_ROWS);
+
+		assertThat(Integer.valueOf(rows), greaterThan(1));
+		assertThat(registry.scrape(), containsString("petclinic_request_rows_count{"));
+	}
+
+	/**
+	 * Test that the Hibernate and connection pool metrics are exported
+	 */
+	@Test
+	public void testHibernateAndPoolMetrics() {
+
+		String scrape = registry.scrape();
+
+		assertThat(scrape, containsString("hibernate_query_executions_total"));
+		assertThat(scrape, containsString("hibernate_second_level_cache_requests_total"));
+		assertThat(scrape, containsString("hikaricp_connections_active"));
+	}
+
+}
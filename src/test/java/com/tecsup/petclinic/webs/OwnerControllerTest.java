@@ -13,7 +13,16 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tecsup.petclinic.util.SqlBudget.maxStatements;
+import static com.tecsup.petclinic.util.SqlBudget.maxStatementsWithoutIdBlocks;
+import static com.tecsup.petclinic.util.SqlBudget.noNPlusOne;
+import static com.tecsup.petclinic.util.SqlBudget.recordStatements;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -45,10 +54,120 @@ public class OwnerControllerTest {
 
 		this.mockMvc.perform(get("/owners"))
 				.andExpect(status().isOk())
+				.andExpect(maxStatements(1))
+				.andExpect(noNPlusOne())
 				.andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
 				.andExpect(jsonPath("$[0].id", is(ID_FIRST_RECORD)));
 	}
 	
+	/**
+	 * Test to walk the owners with keyset pagination
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindOwnersPage() throws Exception {
+
+		final int PAGE_SIZE = 2;
+
+		this.mockMvc.perform(get("/owners/page").param("size", String.valueOf(PAGE_SIZE)))
+				.andExpect(status().isOk())
+				.andExpect(maxStatements(1))
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+				.andExpect(jsonPath("$.items.size()", is(PAGE_SIZE)))
+				.andExpect(jsonPath("$.items[0].id", is(1)))
+				.andExpect(jsonPath("$.next", is("2")));
+
+		this.mockMvc.perform(get("/owners/page").param("after", "2").param("size", String.valueOf(PAGE_SIZE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].id", is(3)))
+				.andExpect(jsonPath("$.next", is("4")));
+	}
+
+	/**
+	 * Test to get a page of owners with their pets in two queries
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindOwnersPageWithPets() throws Exception {
+
+		final int PAGE_SIZE = 5;
+
+		this.mockMvc.perform(get("/owners/page").param("size", String.valueOf(PAGE_SIZE)).param("include", "pets"))
+				.andExpect(status().isOk())
+				.andExpect(maxStatements(2))
+				.andExpect(jsonPath("$.items.size()", is(PAGE_SIZE)))
+				.andExpect(jsonPath("$.items[2].id", is(3)))
+				.andExpect(jsonPath("$.items[2].pets.size()", is(2)))
+				.andExpect(jsonPath("$.items[2].pets[0].id", is(3)))
+				.andExpect(jsonPath("$.items[2].pets[1].id", is(4)));
+
+		this.mockMvc.perform(get("/owners/page").param("include", "visits"))
+				.andExpect(status().isBadRequest());
+	}
+
+	/**
+	 * Test to get all owners with their pets in two queries
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindAllOwnersWithPets() throws Exception {
+
+		String eTag = this.mockMvc.perform(get("/owners").param("include", "pets"))
+				.andExpect(status().isOk())
+				.andExpect(maxStatements(2))
+				.andExpect(noNPlusOne())
+				.andExpect(jsonPath("$[2].pets.size()", is(2)))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		this.mockMvc.perform(get("/owners").param("include", "pets").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+
+		// Owners alone, without the pets field
+		this.mockMvc.perform(get("/owners"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].pets").doesNotExist());
+	}
+
+	/**
+	 * Test to find the pets of an owner
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindOwnerPets() throws Exception {
+
+		this.mockMvc.perform(get("/owners/3/pets"))
+				.andExpect(status().isOk())
+				.andExpect(maxStatements(1))
+				.andExpect(jsonPath("$.size()", is(2)))
+				.andExpect(jsonPath("$[0].ownerId", is(3)));
+
+		this.mockMvc.perform(get("/owners/999/pets"))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Test to export the owners as newline-delimited JSON
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExportOwners() throws Exception {
+
+		String response = this.mockMvc.perform(get("/owners/export").param("format", "ndjson"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = response.split("\n");
+
+		assertTrue(lines.length > 1);
+		assertEquals(Integer.valueOf(1), JsonPath.parse(lines[0]).read("$.id"));
+	}
+
 	/**
 	 * Test to find an owner by id - OK case
 	 * 
@@ -71,6 +190,24 @@ public class OwnerControllerTest {
 				.andExpect(jsonPath("$.city", is(OWNER_CITY)));
 	}
 
+	/**
+	 * Test to search owners by prefix, without going to the database
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSearchOwners() throws Exception {
+
+		this.mockMvc.perform(get("/owners/search").param("q", "Madison Fra"))
+				.andExpect(status().isOk())
+				.andExpect(maxStatements(0))
+				.andExpect(jsonPath("$[0].id", is(1)))
+				.andExpect(jsonPath("$[0].lastName", is("Franklin")));
+
+		this.mockMvc.perform(get("/owners/search"))
+				.andExpect(status().isBadRequest());
+	}
+
 	/**
 	 * Test to find an owner by id - KO case (not found)
 	 * 
@@ -119,6 +256,35 @@ public class OwnerControllerTest {
 
 	}
 
+	/**
+	 * Test to create owners in batch, more than one JDBC batch
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreateOwnersBatch() throws Exception {
+
+		int COUNT = 120;
+
+		List<OwnerDTO> owners = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++)
+			owners.add(OwnerDTO.builder().firstName("Batch" + i).lastName("Owner").city("Lima").build());
+
+		ResultActions mvcActions = this.mockMvc.perform(post("/owners/batch")
+						.content(om.writeValueAsString(owners))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.length()", is(COUNT)));
+
+		String response = mvcActions.andReturn().getResponse().getContentAsString();
+		Number lastId = JsonPath.parse(response).read("$[" + (COUNT - 1) + "]");
+
+		this.mockMvc.perform(get("/owners/" + lastId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.firstName", is("Batch" + (COUNT - 1))));
+
+	}
+
 	/**
 	 * Test to delete an owner
 	 * 
@@ -238,4 +404,107 @@ public class OwnerControllerTest {
 				.andExpect(status().isOk());
 	}
 
+	/**
+	 * Test to update and delete an owner with If-Match - a stale ETag is refused
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testUpdateOwnerIfMatch() throws Exception {
+
+        OwnerDTO newOwnerDTO = OwnerDTO.builder()
+                .firstName("Rosa")
+                .lastName("Quispe")
+                .address("12 Lima Ave.")
+                .city("Piura")
+                .telephone("934567890")
+                .build();
+
+		// CREATE
+		ResultActions mvcActions = mockMvc.perform(post("/owners")
+						.content(om.writeValueAsString(newOwnerDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated());
+
+		String response = mvcActions.andReturn().getResponse().getContentAsString();
+		Long id = JsonPath.parse(response).read("$.id", Long.class);
+
+		// FIND, first version
+		mockMvc.perform(get("/owners/" + id))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+		// UPDATE with the version read
+		newOwnerDTO.setCity("Trujillo");
+		recordStatements();
+		mockMvc.perform(put("/owners/" + id)
+						.content(om.writeValueAsString(newOwnerDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+						.header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isOk())
+				// The update and its outbox insert
+				.andExpect(maxStatementsWithoutIdBlocks(2))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+				.andExpect(jsonPath("$.version", is(1)));
+
+		// UPDATE with a stale version
+		mockMvc.perform(put("/owners/" + id)
+						.content(om.writeValueAsString(newOwnerDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+						.header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isPreconditionFailed());
+
+		// DELETE with a stale version
+		mockMvc.perform(delete("/owners/" + id).header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isPreconditionFailed());
+
+		// DELETE with the current version
+		recordStatements();
+		mockMvc.perform(delete("/owners/" + id).header(HttpHeaders.IF_MATCH, "\"1\""))
+				.andExpect(status().isOk())
+				// The ids of its pets, the delete and the outbox inserts
+				.andExpect(maxStatementsWithoutIdBlocks(3));
+	}
+
+	/**
+	 * Test the conditional GET of an owner - 304 while the ETag is current
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindOwnerNotModified() throws Exception {
+
+		String eTag = mockMvc.perform(get("/owners/1"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/owners/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag))
+				.andExpect(content().string(""));
+
+		mockMvc.perform(get("/owners/1").header(HttpHeaders.IF_NONE_MATCH, "\"999\""))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id", is(1)));
+	}
+
+	/**
+	 * Test the conditional GET of all owners - the ETag computed from the rows
+	 * is the one of the table version
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindAllOwnersNotModified() throws Exception {
+
+		String eTag = mockMvc.perform(get("/owners"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/owners").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag));
+	}
+
 }
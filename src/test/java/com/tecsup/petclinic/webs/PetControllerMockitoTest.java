@@ -3,7 +3,6 @@ package com.tecsup.petclinic.webs;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.JsonPath;
 import com.tecsup.petclinic.dtos.PetDTO;
-import com.tecsup.petclinic.entities.Pet;
 import com.tecsup.petclinic.exceptions.PetNotFoundException;
 import com.tecsup.petclinic.mapper.PetMapper;
 import com.tecsup.petclinic.repositories.PetRepository;
@@ -70,10 +69,8 @@ public class PetControllerMockitoTest {
 
 		List<PetDTO> petTOs  = TObjectCreator.getAllPetTOs();
 
-		List<Pet> pets  = this.mapper.mapToEntityList(petTOs);
-
-		Mockito.when(petService.findAll())
-				.thenReturn(pets);
+		Mockito.when(petService.findAllDto())
+				.thenReturn(petTOs);
 
 		this.mockMvc.perform(get("/pets"))
 				.andExpect(status().isOk())
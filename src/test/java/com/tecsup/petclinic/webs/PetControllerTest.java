@@ -10,10 +10,20 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tecsup.petclinic.util.SqlBudget.maxStatements;
+import static com.tecsup.petclinic.util.SqlBudget.maxStatementsWithoutIdBlocks;
+import static com.tecsup.petclinic.util.SqlBudget.noNPlusOne;
+import static com.tecsup.petclinic.util.SqlBudget.recordStatements;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,6 +39,9 @@ public class PetControllerTest {
 
 	@Autowired
 	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
 	
 	@Test
 	public void testFindAllPets() throws Exception {
@@ -38,12 +51,69 @@ public class PetControllerTest {
 
 		this.mockMvc.perform(get("/pets"))
 				.andExpect(status().isOk())
+				.andExpect(maxStatements(1))
+				.andExpect(noNPlusOne())
 				.andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
 				//		    .andExpect(jsonPath("$", hasSize(NRO_RECORD)))
 				.andExpect(jsonPath("$[0].id", is(ID_FIRST_RECORD)));
 	}
 	
 
+	/**
+	 * Test to walk the pets with keyset pagination
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindPetsPage() throws Exception {
+
+		final int PAGE_SIZE = 2;
+
+		this.mockMvc.perform(get("/pets/page").param("size", String.valueOf(PAGE_SIZE)))
+				.andExpect(status().isOk())
+				.andExpect(maxStatements(1))
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+				.andExpect(jsonPath("$.items.size()", is(PAGE_SIZE)))
+				.andExpect(jsonPath("$.items[0].id", is(1)))
+				.andExpect(jsonPath("$.next", is("2")));
+
+		this.mockMvc.perform(get("/pets/page").param("after", "2").param("size", String.valueOf(PAGE_SIZE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].id", is(3)))
+				.andExpect(jsonPath("$.next", is("4")));
+	}
+
+	/**
+	 * Test to export the pets as newline-delimited JSON
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExportPets() throws Exception {
+
+		String response = this.mockMvc.perform(get("/pets/export").param("format", "ndjson"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = response.split("\n");
+
+		assertTrue(lines.length > 1);
+		assertEquals(Integer.valueOf(1), JsonPath.parse(lines[0]).read("$.id"));
+	}
+
+	/**
+	 * Test to export the pets in an unsupported format
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExportPetsBadFormat() throws Exception {
+
+		this.mockMvc.perform(get("/pets/export").param("format", "xml"))
+				.andExpect(status().isBadRequest());
+	}
+
 	/**
 	 * 
 	 * @throws Exception
@@ -111,6 +181,59 @@ public class PetControllerTest {
 
 	}
 
+	/**
+	 * An invalid birth date is rejected, not stored as null
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreatePetInvalidBirthDate() throws Exception {
+
+		PetDTO newPetTO = PetDTO.builder()
+				.name("Beethoven")
+				.typeId(1)
+				.ownerId(1)
+				.birthDate("2020-13-45")
+				.build();
+
+		this.mockMvc.perform(post("/pets")
+						.content(om.writeValueAsString(newPetTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+
+	}
+
+	/**
+	 * Test to create pets in batch, more than one JDBC batch. The pets and
+	 * their outbox events are inserted a JDBC batch at a time, not row by row
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreatePetsBatch() throws Exception {
+
+		int COUNT = 120;
+
+		List<PetDTO> pets = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++)
+			pets.add(PetDTO.builder().name("Batch" + i).typeId(1).ownerId(1).birthDate("2020-05-20").build());
+
+		ResultActions mvcActions = this.mockMvc.perform(post("/pets/batch")
+						.content(om.writeValueAsString(pets))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andExpect(maxStatements(30))
+				.andExpect(jsonPath("$.length()", is(COUNT)));
+
+		String response = mvcActions.andReturn().getResponse().getContentAsString();
+		Number lastId = JsonPath.parse(response).read("$[" + (COUNT - 1) + "]");
+
+		this.mockMvc.perform(get("/pets/" + lastId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name", is("Batch" + (COUNT - 1))));
+
+	}
+
 
 	/**
      * 
@@ -218,5 +341,159 @@ public class PetControllerTest {
 				.andExpect(status().isOk());
 	}
 
+	/**
+	 * Test to update and delete a pet with If-Match - a stale ETag is refused
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testUpdatePetIfMatch() throws Exception {
+
+        PetDTO newPetDTO = PetDTO.builder()
+                .name("Beethoven6")
+                .typeId(1)
+                .ownerId(1)
+                .birthDate("2020-05-20")
+                .build();
+
+		// CREATE
+		ResultActions mvcActions = mockMvc.perform(post("/pets")
+						.content(om.writeValueAsString(newPetDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated());
+
+		String response = mvcActions.andReturn().getResponse().getContentAsString();
+		Integer id = JsonPath.parse(response).read("$.id");
+
+		// FIND, first version
+		mockMvc.perform(get("/pets/" + id))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+		// UPDATE with the version read
+		newPetDTO.setName("Beethoven7");
+		recordStatements();
+		mockMvc.perform(put("/pets/" + id)
+						.content(om.writeValueAsString(newPetDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+						.header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isOk())
+				// The update and its outbox insert
+				.andExpect(maxStatementsWithoutIdBlocks(2))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+				.andExpect(jsonPath("$.version", is(1)));
+
+		// UPDATE with a stale version
+		mockMvc.perform(put("/pets/" + id)
+						.content(om.writeValueAsString(newPetDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+						.header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isPreconditionFailed());
+
+		// DELETE with a stale version
+		mockMvc.perform(delete("/pets/" + id).header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isPreconditionFailed());
+
+		// DELETE with the current version
+		recordStatements();
+		mockMvc.perform(delete("/pets/" + id).header(HttpHeaders.IF_MATCH, "\"1\""))
+				.andExpect(status().isOk())
+				// The delete and its outbox insert
+				.andExpect(maxStatementsWithoutIdBlocks(2));
+	}
+
+	/**
+	 * Test the conditional GET of a pet - 304 while the ETag is current
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindPetNotModified() throws Exception {
+
+		String eTag = mockMvc.perform(get("/pets/1"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/pets/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag))
+				.andExpect(content().string(""));
+
+		mockMvc.perform(get("/pets/1").header(HttpHeaders.IF_NONE_MATCH, "\"999\""))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id", is(1)));
+	}
+
+	/**
+	 * Test the conditional GET of all pets - the ETag computed from the rows
+	 * is the one of the table version
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindAllPetsNotModified() throws Exception {
+
+		String eTag = mockMvc.perform(get("/pets"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/pets").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag));
+	}
+
+	/**
+	 * Test that the ETag of all pets changes when a pet is deleted and another
+	 * one created below the highest id, as when another instance took the
+	 * next block of ids
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindAllPetsETagChangesWhenPetReplaced() throws Exception {
+
+		final int OTHER_INSTANCE_ID = 900_000;
+
+		jdbcTemplate.update("INSERT INTO pets (id, name, type_id, owner_id) VALUES (?, 'Elsewhere', 1, 1)", OTHER_INSTANCE_ID);
+		Integer newId = null;
+
+		try {
+			Integer replacedId = createPet("Replaced");
+
+			String eTag = mockMvc.perform(get("/pets"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+			mockMvc.perform(delete("/pets/" + replacedId))
+					.andExpect(status().isOk());
+			newId = createPet("Replacing");
+
+			mockMvc.perform(get("/pets").header(HttpHeaders.IF_NONE_MATCH, eTag))
+					.andExpect(status().isOk());
+		} finally {
+			jdbcTemplate.update("DELETE FROM pets WHERE id = ?", OTHER_INSTANCE_ID);
+			if (newId != null)
+				mockMvc.perform(delete("/pets/" + newId));
+		}
+	}
+
+	// Create a pet of the owner 1, returns its id
+	private Integer createPet(String name) throws Exception {
+
+		PetDTO newPetTO = PetDTO.builder()
+				.name(name)
+				.typeId(1)
+				.ownerId(1)
+				.build();
+
+		String response = mockMvc.perform(post("/pets")
+						.content(om.writeValueAsString(newPetTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+
+		return JsonPath.parse(response).read("$.id");
+	}
+
 }
-    
\ No newline at end of file
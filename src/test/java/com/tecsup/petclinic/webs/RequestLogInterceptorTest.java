@@ -0,0 +1,105 @@
+package com.tecsup.petclinic.webs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Which requests are logged : a sample of them, failed and slow ones always
+ */
+public class RequestLogInterceptorTest {
+
+	private static final long NEVER_SLOW_MS = 3_600_000;
+
+	private final Logger logger = (Logger) LoggerFactory.getLogger(RequestLogInterceptor.class);
+
+	private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+	private Level level;
+
+	@BeforeEach
+	void setUp() {
+		level = logger.getLevel();
+		logger.setLevel(Level.INFO);
+		appender.start();
+		logger.addAppender(appender);
+	}
+
+	@AfterEach
+	void tearDown() {
+		logger.detachAppender(appender);
+		logger.setLevel(level);
+	}
+
+	/**
+	 * Test that with a sample rate of 0 the successful requests are not logged
+	 */
+	@Test
+	public void testSuccessNotSampled() {
+
+		assertEquals(List.of(), logged(new RequestLogInterceptor(0, NEVER_SLOW_MS), 200, null));
+	}
+
+	/**
+	 * Test that with a sample rate of 1 every request is logged
+	 */
+	@Test
+	public void testSuccessSampled() {
+
+		assertEquals(1, logged(new RequestLogInterceptor(1, NEVER_SLOW_MS), 200, null).size());
+	}
+
+	/**
+	 * Test that the client and server errors are always logged, exceptions
+	 * handled by an advice (no exception left) included
+	 */
+	@Test
+	public void testFailuresAlwaysLogged() {
+
+		RequestLogInterceptor interceptor = new RequestLogInterceptor(0, NEVER_SLOW_MS);
+
+		assertTrue(logged(interceptor, 404, null).get(0).contains("status=404"));
+		assertTrue(logged(interceptor, 412, null).get(0).contains("status=412"));
+		assertTrue(logged(interceptor, 500, null).get(0).contains("status=500"));
+		assertEquals(1, logged(interceptor, 200, new IllegalStateException("unhandled")).size());
+	}
+
+	/**
+	 * Test that the slow requests are always logged
+	 */
+	@Test
+	public void testSlowAlwaysLogged() {
+
+		assertEquals(1, logged(new RequestLogInterceptor(0, 0), 200, null).size());
+	}
+
+	// Lines logged for a GET /pets?name=Leo answered with the status
+	private List<String> logged(RequestLogInterceptor interceptor, int status, Exception ex) {
+
+		appender.list.clear();
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/pets");
+		request.setParameter("name", "Leo");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		interceptor.preHandle(request, response, null);
+		response.setStatus(status);
+		interceptor.afterCompletion(request, response, null, ex);
+
+		return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+	}
+
+}
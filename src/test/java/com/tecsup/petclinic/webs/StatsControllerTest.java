@@ -0,0 +1,47 @@
+package com.tecsup.petclinic.webs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.tecsup.petclinic.util.SqlBudget.maxStatements;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for StatsController
+ *
+ * @author jgomezm
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+@Slf4j
+public class StatsControllerTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	/**
+	 * Test that the counters are read without any query
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindStats() throws Exception {
+
+		this.mockMvc.perform(get("/stats"))
+				.andExpect(status().isOk())
+				.andExpect(maxStatements(0))
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$.pets", notNullValue()))
+				.andExpect(jsonPath("$.petsByType.2", notNullValue()))
+				.andExpect(jsonPath("$.ownersByCity.Madison", notNullValue()))
+				.andExpect(jsonPath("$.revenueByVet.2", notNullValue()));
+	}
+
+}
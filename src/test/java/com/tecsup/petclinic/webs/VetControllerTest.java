@@ -2,7 +2,9 @@ package com.tecsup.petclinic.webs;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.JsonPath;
+import com.tecsup.petclinic.dtos.SpecialtyDTO;
 import com.tecsup.petclinic.dtos.VetDTO;
+import com.tecsup.petclinic.services.SpecialtyService;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +15,17 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tecsup.petclinic.util.SqlBudget.maxStatements;
+import static com.tecsup.petclinic.util.SqlBudget.maxStatementsWithoutIdBlocks;
+import static com.tecsup.petclinic.util.SqlBudget.noNPlusOne;
+import static com.tecsup.petclinic.util.SqlBudget.recordStatements;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,6 +44,9 @@ public class VetControllerTest {
 
 	@Autowired
 	private MockMvc mockMvc;
+
+	@Autowired
+	private SpecialtyService specialtyService;
 	
 	/**
 	 * Test to find all vets
@@ -45,10 +60,55 @@ public class VetControllerTest {
 
 		this.mockMvc.perform(get("/vets"))
 				.andExpect(status().isOk())
+				.andExpect(maxStatements(1))
+				.andExpect(noNPlusOne())
 				.andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
 				.andExpect(jsonPath("$[0].id", is(ID_FIRST_RECORD)));
 	}
 	
+	/**
+	 * Test to walk the vets with keyset pagination
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindVetsPage() throws Exception {
+
+		final int PAGE_SIZE = 2;
+
+		this.mockMvc.perform(get("/vets/page").param("size", String.valueOf(PAGE_SIZE)))
+				.andExpect(status().isOk())
+				.andExpect(maxStatements(2))
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+				.andExpect(jsonPath("$.items.size()", is(PAGE_SIZE)))
+				.andExpect(jsonPath("$.items[0].id", is(1)))
+				.andExpect(jsonPath("$.next", is("2")));
+
+		this.mockMvc.perform(get("/vets/page").param("after", "2").param("size", String.valueOf(PAGE_SIZE)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].id", is(3)))
+				.andExpect(jsonPath("$.next", is("4")));
+	}
+
+	/**
+	 * Test to export the vets as newline-delimited JSON
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExportVets() throws Exception {
+
+		String response = this.mockMvc.perform(get("/vets/export").param("format", "ndjson"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = response.split("\n");
+
+		assertTrue(lines.length > 1);
+		assertEquals(Integer.valueOf(1), JsonPath.parse(lines[0]).read("$.id"));
+	}
+
 	/**
 	 * Test to find a vet by id - OK case
 	 * 
@@ -108,6 +168,35 @@ public class VetControllerTest {
 
 	}
 
+	/**
+	 * Test to create vets in batch, more than one JDBC batch
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreateVetsBatch() throws Exception {
+
+		int COUNT = 120;
+
+		List<VetDTO> vets = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++)
+			vets.add(VetDTO.builder().firstName("Batch" + i).lastName("Vet").build());
+
+		ResultActions mvcActions = this.mockMvc.perform(post("/vets/batch")
+						.content(om.writeValueAsString(vets))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.length()", is(COUNT)));
+
+		String response = mvcActions.andReturn().getResponse().getContentAsString();
+		Number lastId = JsonPath.parse(response).read("$[" + (COUNT - 1) + "]");
+
+		this.mockMvc.perform(get("/vets/" + lastId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.firstName", is("Batch" + (COUNT - 1))));
+
+	}
+
 	/**
 	 * Test to delete a vet
 	 * 
@@ -206,4 +295,135 @@ public class VetControllerTest {
 				.andExpect(status().isOk());
 	}
 
+	/**
+	 * Test to update and delete a vet with If-Match - a stale ETag is refused
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testUpdateVetIfMatch() throws Exception {
+
+        VetDTO newVetDTO = VetDTO.builder()
+                .firstName("Elena")
+                .lastName("Rojas")
+                .build();
+
+		// CREATE
+		ResultActions mvcActions = mockMvc.perform(post("/vets")
+						.content(om.writeValueAsString(newVetDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated());
+
+		String response = mvcActions.andReturn().getResponse().getContentAsString();
+		Integer id = JsonPath.parse(response).read("$.id");
+
+		// FIND, first version
+		mockMvc.perform(get("/vets/" + id))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+		// UPDATE with the version read
+		newVetDTO.setLastName("Rojas Diaz");
+		recordStatements();
+		mockMvc.perform(put("/vets/" + id)
+						.content(om.writeValueAsString(newVetDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+						.header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isOk())
+				// The update and its outbox insert
+				.andExpect(maxStatementsWithoutIdBlocks(2))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+				.andExpect(jsonPath("$.version", is(1)));
+
+		// UPDATE with a stale version
+		mockMvc.perform(put("/vets/" + id)
+						.content(om.writeValueAsString(newVetDTO))
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+						.header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isPreconditionFailed());
+
+		// DELETE with a stale version
+		mockMvc.perform(delete("/vets/" + id).header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isPreconditionFailed());
+
+		// DELETE with the current version
+		recordStatements();
+		mockMvc.perform(delete("/vets/" + id).header(HttpHeaders.IF_MATCH, "\"1\""))
+				.andExpect(status().isOk())
+				// Its specialties (removed by Hibernate first), the delete and its outbox insert
+				.andExpect(maxStatementsWithoutIdBlocks(3));
+	}
+
+	/**
+	 * Test the conditional GET of a vet - 304 while the ETag is current
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindVetNotModified() throws Exception {
+
+		String eTag = mockMvc.perform(get("/vets/1"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, must-revalidate"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/vets/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag))
+				.andExpect(content().string(""));
+
+		mockMvc.perform(get("/vets/1").header(HttpHeaders.IF_NONE_MATCH, "\"999\""))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id", is(1)));
+	}
+
+	/**
+	 * Test the conditional GET of all vets - the ETag computed from the rows
+	 * is the one of the table version
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindAllVetsNotModified() throws Exception {
+
+		String eTag = mockMvc.perform(get("/vets"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/vets").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag));
+	}
+
+	/**
+	 * Test that renaming a specialty changes the ETag of all vets, the
+	 * specialty names are part of the list
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindAllVetsModifiedBySpecialty() throws Exception {
+
+		final int ID_SPECIALTY = 1;
+
+		String eTag = mockMvc.perform(get("/vets"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		SpecialtyDTO specialty = specialtyService.findById(ID_SPECIALTY);
+		String name = specialty.getName();
+
+		specialty.setName(name + "-renamed");
+		specialtyService.update(specialty);
+
+		try {
+			mockMvc.perform(get("/vets").header(HttpHeaders.IF_NONE_MATCH, eTag))
+					.andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+		} finally {
+			specialty.setName(name);
+			specialtyService.update(specialty);
+		}
+	}
+
 }
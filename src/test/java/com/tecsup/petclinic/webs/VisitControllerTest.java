@@ -0,0 +1,234 @@
+package com.tecsup.petclinic.webs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for VisitController
+ *
+ * @author jgomezm
+ */
+@AutoConfigureMockMvc
+@SpringBootTest
+@Slf4j
+public class VisitControllerTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	/**
+	 * Test to find a visit by id
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindVisitOK() throws Exception {
+
+		this.mockMvc.perform(get("/visits/1"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$.id", is(1)))
+				.andExpect(jsonPath("$.petId", is(7)))
+				.andExpect(jsonPath("$.visitDate", is("2010-03-04")))
+				.andExpect(jsonPath("$.description", is("rabies shot")));
+	}
+
+	/**
+	 * Test to find a visit by id - KO case
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindVisitKO() throws Exception {
+
+		this.mockMvc.perform(get("/visits/99999"))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Test to create a visit
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreateVisit() throws Exception {
+
+		String body = "{\"petId\":3,\"vetId\":4,\"visitDate\":\"2030-02-01\",\"description\":\"checkup\",\"cost\":30.5}";
+
+		this.mockMvc.perform(post("/visits").content(body).contentType(MediaType.APPLICATION_JSON))
+				.andDo(print())
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.id", notNullValue()))
+				.andExpect(jsonPath("$.petId", is(3)))
+				.andExpect(jsonPath("$.visitDate", is("2030-02-01")));
+	}
+
+	/**
+	 * Test to create a visit for a pet that does not exist
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCreateVisitPetNotFound() throws Exception {
+
+		String body = "{\"petId\":99999,\"visitDate\":\"2030-02-01\"}";
+
+		this.mockMvc.perform(post("/visits").content(body).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Test to walk the visits of a pet with keyset pagination
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindVisitsByPet() throws Exception {
+
+		this.mockMvc.perform(get("/pets/8/visits").param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items.size()", is(1)))
+				.andExpect(jsonPath("$.items[0].id", is(2)))
+				.andExpect(jsonPath("$.next", is("2")));
+
+		this.mockMvc.perform(get("/pets/8/visits").param("after", "2").param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].id", is(3)))
+				.andExpect(jsonPath("$.next", nullValue()));
+	}
+
+	/**
+	 * Test to read the visits of a vet
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindVisitsByVet() throws Exception {
+
+		this.mockMvc.perform(get("/vets/2/visits"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items.size()", is(2)))
+				.andExpect(jsonPath("$.items[0].id", is(1)))
+				.andExpect(jsonPath("$.items[1].id", is(2)));
+	}
+
+	/**
+	 * Test to walk a date range with keyset pagination
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindVisitsByDate() throws Exception {
+
+		this.mockMvc.perform(get("/visits").param("from", "2008-01-01").param("to", "2011-12-31").param("size", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].id", is(4)))
+				.andExpect(jsonPath("$.items[1].id", is(3)))
+				.andExpect(jsonPath("$.next", is("2009-06-04_3")));
+
+		this.mockMvc.perform(get("/visits").param("from", "2008-01-01").param("to", "2011-12-31")
+						.param("after", "2009-06-04_3").param("size", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].id", is(1)))
+				.andExpect(jsonPath("$.items[1].id", is(2)))
+				.andExpect(jsonPath("$.next", nullValue()));
+	}
+
+	/**
+	 * Test to list the free slots of a vet with two specialties : surgery
+	 * (primary) 8 to 12 and dentistry 9 to 19
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindSlots() throws Exception {
+
+		String date = LocalDate.now().plusDays(40).toString();
+
+		this.mockMvc.perform(get("/vets/3/slots").param("date", date))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.size()", is(22)))
+				.andExpect(jsonPath("$[0].start", is("08:00:00")))
+				.andExpect(jsonPath("$[0].end", is("08:30:00")))
+				.andExpect(jsonPath("$[2].start", is("09:00:00")))
+				.andExpect(jsonPath("$[2].specialtyId", is(2)))
+				.andExpect(jsonPath("$[8].start", is("12:00:00")))
+				.andExpect(jsonPath("$[8].specialtyId", is(3)))
+				.andExpect(jsonPath("$[8].office", is("Terranova")));
+
+		this.mockMvc.perform(get("/vets/3/slots").param("date", date).param("specialtyId", "3"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.size()", is(20)))
+				.andExpect(jsonPath("$[0].start", is("09:00:00")));
+
+		this.mockMvc.perform(get("/vets/999/slots").param("date", date))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Test to book a slot, then the same one again
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testBookAppointment() throws Exception {
+
+		String date = LocalDate.now().plusDays(41).toString();
+		String body = "{\"petId\":5,\"visitDate\":\"" + date + "\",\"visitTime\":\"10:00\",\"description\":\"x-ray\"}";
+
+		this.mockMvc.perform(post("/vets/4/appointments").content(body).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.id", notNullValue()))
+				.andExpect(jsonPath("$.vetId", is(4)))
+				.andExpect(jsonPath("$.visitTime", is("10:00:00")));
+
+		// Surgery 8 to 12, without 10:00
+		this.mockMvc.perform(get("/vets/4/slots").param("date", date))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.size()", is(7)))
+				.andExpect(jsonPath("$[4].start", is("10:30:00")));
+
+		this.mockMvc.perform(post("/vets/4/appointments").content(body).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isConflict());
+
+		this.mockMvc.perform(post("/vets/4/appointments").content(body.replace("10:00", "19:00"))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isConflict());
+
+		this.mockMvc.perform(post("/vets/4/appointments").content(body.replace("\"petId\":5", "\"petId\":99999"))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Test to read a date range with an invalid date
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFindVisitsByDateInvalid() throws Exception {
+
+		this.mockMvc.perform(get("/visits").param("from", "01/01/2008").param("to", "2011-12-31"))
+				.andExpect(status().isBadRequest());
+
+		this.mockMvc.perform(get("/visits").param("from", "2008-01-01").param("to", "2011-12-31")
+						.param("after", "bad"))
+				.andExpect(status().isBadRequest());
+	}
+
+}